@@ -0,0 +1,49 @@
+package com.matesRace.backend.benchmark;
+
+import com.matesRace.backend.dto.LeaderboardEntryDTO;
+import com.matesRace.backend.dto.RaceResponseDTO;
+import com.matesRace.backend.service.LeaderboardRanker;
+import com.matesRace.backend.service.RaceDtoConverter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LeaderboardBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int participants;
+
+    private LeaderboardRanker ranker;
+    private RaceResponseDTO race;
+
+    @Setup
+    public void setUp() {
+        ranker = new LeaderboardRanker();
+        // Organiser view, so every submitted time is visible and ranked
+        race = new RaceDtoConverter(new SimpleMeterRegistry()).convertToRaceResponseDTO(
+                SyntheticRaces.race(participants, 5), true, SyntheticRaces.viewer(SyntheticRaces.ORGANISER_ID));
+    }
+
+    @Benchmark
+    public List<LeaderboardEntryDTO> rank() {
+        return ranker.rank(race.getParticipants(), race.getSegmentIds());
+    }
+}
@@ -0,0 +1,71 @@
+package com.matesRace.backend.benchmark;
+
+import com.matesRace.backend.dto.ParticipantSummaryDTO;
+import com.matesRace.backend.dto.RaceResponseDTO;
+import com.matesRace.backend.dto.RaceSummaryDTO;
+import com.matesRace.backend.model.Participant;
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.service.RaceDtoConverter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RaceDtoConversionBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int participants;
+
+    private RaceDtoConverter converter;
+    private Race race;
+    private Participant participant;
+    private OAuth2User rider;
+    private OAuth2User organiser;
+
+    @Setup
+    public void setUp() {
+        converter = new RaceDtoConverter(new SimpleMeterRegistry());
+        race = SyntheticRaces.race(participants, 5);
+        participant = race.getParticipants().get(race.getParticipants().size() / 2);
+        rider = SyntheticRaces.viewer(SyntheticRaces.FIRST_RIDER_ID);
+        organiser = SyntheticRaces.viewer(SyntheticRaces.ORGANISER_ID);
+    }
+
+    // Hidden-until-finish race seen by a rider: most times are masked
+    @Benchmark
+    public RaceResponseDTO raceDetailAsRider() {
+        return converter.convertToRaceResponseDTO(race, true, rider);
+    }
+
+    @Benchmark
+    public RaceResponseDTO raceDetailAsOrganiser() {
+        return converter.convertToRaceResponseDTO(race, true, organiser);
+    }
+
+    @Benchmark
+    public RaceSummaryDTO raceSummary() {
+        return converter.convertToRaceSummaryDTO(race);
+    }
+
+    @Benchmark
+    public ParticipantSummaryDTO participantSummary() {
+        return converter.convertToParticipantSummaryDTO(participant, race, rider);
+    }
+}
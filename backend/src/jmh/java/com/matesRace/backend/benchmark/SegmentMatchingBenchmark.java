@@ -0,0 +1,59 @@
+package com.matesRace.backend.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matesRace.backend.model.Participant;
+import com.matesRace.backend.model.ParticipantSegmentResult;
+import com.matesRace.backend.service.SegmentEffortMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The match stage of StravaService.processAndSaveActivityResults, on an already parsed activity
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentMatchingBenchmark {
+
+    // Typical rides have tens of efforts, long ones in dense areas several hundred
+    @Param({"20", "100", "500"})
+    private int efforts;
+
+    @Param({"3", "20"})
+    private int raceSegments;
+
+    private List<Map<String, Object>> segmentEfforts;
+    private long[] raceSegmentIds;
+    private Participant participant;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        raceSegmentIds = SyntheticRaces.segmentIds(raceSegments);
+        Map<String, Object> activity = new ObjectMapper().readValue(
+                SyntheticRaces.activityJson(efforts, raceSegmentIds), new TypeReference<Map<String, Object>>() {});
+        segmentEfforts = (List<Map<String, Object>>) activity.get("segment_efforts");
+        participant = new Participant();
+        participant.setId(1L);
+    }
+
+    @Benchmark
+    public List<ParticipantSegmentResult> match() {
+        return SegmentEffortMatcher.match(segmentEfforts, raceSegmentIds, participant, 12345678901L);
+    }
+}
@@ -0,0 +1,170 @@
+package com.matesRace.backend.benchmark;
+
+import com.matesRace.backend.model.Participant;
+import com.matesRace.backend.model.ParticipantSegmentResult;
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.model.Segment;
+import com.matesRace.backend.model.User;
+import com.matesRace.backend.service.PolylineCodec;
+import com.matesRace.backend.service.TrackPoints;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Deterministic in-memory fixtures shaped like production data, no database involved
+final class SyntheticRaces {
+
+    static final long ORGANISER_ID = 1L;
+    static final long FIRST_RIDER_ID = 1_000L;
+
+    private SyntheticRaces() {
+    }
+
+    static long[] segmentIds(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = 600_000L + i * 37L;
+        }
+        return ids;
+    }
+
+    // A running race that hides times until the finish; about 85% of riders submitted, a few missed a segment
+    static Race race(int participants, int segments) {
+        SplittableRandom random = new SplittableRandom(42);
+        User organiser = user(ORGANISER_ID, random);
+
+        Race race = new Race();
+        race.setId(1L);
+        race.setRaceName("Synthetic race");
+        race.setRaceInfo("Generated for benchmarks");
+        race.setOrganiser(organiser);
+        race.setStartDate(Instant.now().minus(1, ChronoUnit.DAYS));
+        race.setEndDate(Instant.now().plus(1, ChronoUnit.DAYS));
+        race.setSegmentIds(segmentIds(segments));
+        race.setHideLeaderboardUntilFinish(true);
+        race.setUseSexCategories(true);
+        race.setParticipantCount(participants);
+
+        for (int i = 0; i < participants; i++) {
+            Participant participant = new Participant();
+            participant.setId((long) i + 1);
+            participant.setRace(race);
+            participant.setUser(user(FIRST_RIDER_ID + i, random));
+            boolean submitted = random.nextInt(100) < 85;
+            participant.setSubmittedRide(submitted);
+            if (submitted) {
+                participant.setSubmittedActivityId(10_000_000L + i);
+                for (long segmentId : race.getSegmentIds()) {
+                    if (random.nextInt(100) < 3) {
+                        continue; // Missed this segment
+                    }
+                    ParticipantSegmentResult result = new ParticipantSegmentResult();
+                    result.setId((long) i * segments + segmentId);
+                    result.setParticipant(participant);
+                    result.setSegmentId(segmentId);
+                    result.setSegmentName("Segment " + segmentId);
+                    result.setElapsedTimeSeconds(300 + random.nextInt(900));
+                    participant.getSegmentResults().add(result);
+                }
+            }
+            race.getParticipants().add(participant);
+        }
+        return race;
+    }
+
+    static OAuth2User viewer(long stravaId) {
+        return new DefaultOAuth2User(List.of(), Map.of("id", stravaId), "id");
+    }
+
+    // Strava's DetailedActivity with its segment_efforts; every race segment appears among the efforts
+    static String activityJson(int efforts, long[] raceSegmentIds) {
+        SplittableRandom random = new SplittableRandom(7);
+        StringBuilder json = new StringBuilder(efforts * 600);
+        json.append("{\"id\":12345678901,\"name\":\"Morning Ride\",\"type\":\"Ride\",\"sport_type\":\"Ride\",")
+                .append("\"distance\":48211.3,\"moving_time\":6120,\"elapsed_time\":6733,\"total_elevation_gain\":512.0,")
+                .append("\"start_date\":\"2025-05-10T06:12:44Z\",\"start_date_local\":\"2025-05-10T08:12:44Z\",")
+                .append("\"athlete\":{\"id\":1000,\"resource_state\":1},\"segment_efforts\":[");
+        for (int i = 0; i < efforts; i++) {
+            long segmentId = i < raceSegmentIds.length ? raceSegmentIds[i] : 9_000_000L + random.nextInt(1_000_000);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(3_000_000_000L + i)
+                    .append(",\"resource_state\":2,\"name\":\"Segment ").append(segmentId)
+                    .append("\",\"elapsed_time\":").append(60 + random.nextInt(1200))
+                    .append(",\"moving_time\":").append(60 + random.nextInt(1200))
+                    .append(",\"start_date\":\"2025-05-10T06:30:00Z\",\"start_index\":").append(i * 40)
+                    .append(",\"end_index\":").append(i * 40 + 35)
+                    .append(",\"average_watts\":").append(150 + random.nextInt(200)).append(".4")
+                    .append(",\"segment\":{\"id\":").append(segmentId)
+                    .append(",\"resource_state\":2,\"name\":\"Segment ").append(segmentId)
+                    .append("\",\"activity_type\":\"Ride\",\"distance\":").append(500 + random.nextInt(5000)).append(".7")
+                    .append(",\"average_grade\":3.1,\"maximum_grade\":9.8,\"elevation_high\":210.4,\"elevation_low\":120.2")
+                    .append(",\"start_latlng\":[59.91,10.75],\"end_latlng\":[59.93,10.77],\"climb_category\":0")
+                    .append(",\"city\":\"Oslo\",\"country\":\"Norway\",\"private\":false,\"hazardous\":false}}");
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    // A ride recorded once a second around Oslo: about 8 m/s on a slowly wandering heading, with a few metres of GPS noise
+    static TrackPoints ride(int seconds) {
+        SplittableRandom random = new SplittableRandom(11);
+        TrackPoints track = new TrackPoints(seconds + 1);
+        double metersPerDegree = Math.toRadians(1) * 6_371_000;
+        double lat = 59.91;
+        double lng = 10.75;
+        double heading = 0;
+        long start = Instant.parse("2025-05-10T06:12:44Z").getEpochSecond();
+        for (int i = 0; i < seconds; i++) {
+            heading += (random.nextDouble() - 0.5) * 0.2;
+            double speed = 6 + random.nextDouble() * 4;
+            lat += speed * Math.cos(heading) / metersPerDegree;
+            lng += speed * Math.sin(heading) / (metersPerDegree * Math.cos(Math.toRadians(lat)));
+            double noise = 3 / metersPerDegree;
+            track.add(lat + (random.nextDouble() - 0.5) * noise, lng + (random.nextDouble() - 0.5) * noise, start + i);
+        }
+        return track;
+    }
+
+    // Race segments of 1-3 km spread evenly along the ride, gates and polyline taken from the ride itself
+    static List<Segment> segmentsAlong(TrackPoints ride, int count) {
+        SplittableRandom random = new SplittableRandom(13);
+        long[] ids = segmentIds(count);
+        List<Segment> segments = new ArrayList<>(count);
+        int spacing = ride.size() / count;
+        for (int s = 0; s < count; s++) {
+            int from = s * spacing + random.nextInt(Math.max(1, spacing / 4));
+            int to = Math.min(ride.size() - 1, from + 125 + random.nextInt(250));
+            double[] route = new double[((to - from) / 5 + 2) * 2];
+            int n = 0;
+            for (int i = from; i < to; i += 5) {
+                route[n++] = ride.lat(i);
+                route[n++] = ride.lng(i);
+            }
+            route[n++] = ride.lat(to);
+            route[n++] = ride.lng(to);
+            segments.add(new Segment(ids[s], "Segment " + ids[s], ride.lat(from), ride.lng(from), ride.lat(to), ride.lng(to),
+                    null, PolylineCodec.encode(Arrays.copyOf(route, n)), Instant.EPOCH));
+        }
+        return segments;
+    }
+
+    private static User user(long stravaId, SplittableRandom random) {
+        String sex = switch (random.nextInt(10)) {
+            case 0 -> null;
+            case 1, 2, 3, 4 -> "F";
+            default -> "M";
+        };
+        return new User(stravaId, "Rider " + stravaId, "Rider", String.valueOf(stravaId),
+                "https://dgalywyr863hv.cloudfront.net/pictures/athletes/" + stravaId + "/medium.jpg",
+                sex, "Oslo", "Oslo", "Norway");
+    }
+}
@@ -0,0 +1,66 @@
+package com.matesRace.backend.benchmark;
+
+import com.matesRace.backend.model.Participant;
+import com.matesRace.backend.model.ParticipantSegmentResult;
+import com.matesRace.backend.model.Segment;
+import com.matesRace.backend.service.TrackPoints;
+import com.matesRace.backend.service.TrackSegmentMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Scoring an uploaded track (TrackSubmissionService.submitTrack) on multi-hour rides, one point per second
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackMatchingBenchmark {
+
+    @Param({"1", "4", "8"})
+    private int hours;
+
+    @Param({"12", "48"})
+    private int raceSegments;
+
+    private TrackPoints track;
+    private List<Segment> segments;
+    private TrackSegmentMatcher matcher;
+    private Participant participant;
+
+    @Setup
+    public void setUp() {
+        track = SyntheticRaces.ride(hours * 3600);
+        segments = SyntheticRaces.segmentsAlong(track, raceSegments);
+        matcher = new TrackSegmentMatcher(segments);
+        participant = new Participant();
+        participant.setId(1L);
+        int matched = matcher.match(track, participant).size();
+        if (matched != raceSegments) {
+            throw new IllegalStateException("Only " + matched + " of " + raceSegments + " segments matched");
+        }
+    }
+
+    @Benchmark
+    public List<ParticipantSegmentResult> match() {
+        return matcher.match(track, participant);
+    }
+
+    // What a submission pays: the race's gate grid and checkpoints are built per request
+    @Benchmark
+    public List<ParticipantSegmentResult> buildAndMatch() {
+        return new TrackSegmentMatcher(segments).match(track, participant);
+    }
+}
@@ -0,0 +1,94 @@
+package com.matesRace.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+public class DataSourceRoutingConfig implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceRoutingConfig.class);
+
+    private final List<HikariDataSource> replicaPools = new ArrayList<>();
+
+    // The writable database. Inject with @Qualifier("primaryDataSource") when a physical primary connection is required.
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        return primary;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primary,
+                                 DataSourceProperties properties,
+                                 ReplicaDataSourceProperties replicaProperties) {
+        List<String> replicaUrls = replicaProperties.getReplicaUrls().stream()
+                .filter(url -> url != null && !url.isBlank())
+                .toList();
+        if (replicaUrls.isEmpty()) {
+            logger.info("No read replicas configured, all transactions use the primary database.");
+            return countingStatements(primary);
+        }
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReplicaRoutingDataSource.PRIMARY_KEY, primary);
+        List<String> replicaKeys = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            String key = "replica-" + i;
+            HikariDataSource replica = new HikariDataSource();
+            primary.copyStateTo(replica); // Same driver and pool tuning as the primary
+            replica.setPoolName(key);
+            replica.setJdbcUrl(replicaUrls.get(i));
+            replica.setUsername(replicaProperties.getReplicaUsername() != null ? replicaProperties.getReplicaUsername() : properties.determineUsername());
+            replica.setPassword(replicaProperties.getReplicaPassword() != null ? replicaProperties.getReplicaPassword() : properties.determinePassword());
+            replica.setMaximumPoolSize(replicaProperties.getReplicaMaximumPoolSize());
+            replica.setReadOnly(true);
+            replicaPools.add(replica);
+            targets.put(key, replica);
+            replicaKeys.add(key);
+        }
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(replicaKeys, replicaProperties.getReadYourWritesWindow());
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        logger.info("Routing read-only transactions across {} replica(s), read-your-writes window {}.",
+                replicaKeys.size(), replicaProperties.getReadYourWritesWindow());
+
+        // Defer picking a target until the first statement so the transaction's read-only flag is known
+        return countingStatements(new LazyConnectionDataSourceProxy(routing));
+    }
+
+    // Every statement through the application DataSource, Hibernate or JdbcTemplate, is seen by SqlStatementCounter
+    private static DataSource countingStatements(DataSource dataSource) {
+        return ProxyDataSourceBuilder.create(dataSource)
+                .name("matesrace")
+                .listener(new SqlStatementCounter())
+                .build();
+    }
+
+    @Override
+    public void destroy() {
+        replicaPools.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,73 @@
+package com.matesRace.backend.config;
+
+import net.ttddyy.dsproxy.proxy.ProxyJdbcObject;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.util.ClassUtils;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Reachability hints for the GraalVM native image (mvn -Pnative native:compile). Spring AOT already covers
+ * the beans, controller signatures and JPA managed types, and Spring Security ships hints for the OAuth2
+ * login flow; this adds what the app reaches by reflection outside of those: entities read and written
+ * by Hibernate, DTOs (de)serialized by Jackson outside a controller (snapshots, span file), the JCache
+ * provider Hibernate loads by name, the Caffeine region config, and the JDK proxies datasource-proxy wraps
+ * JDBC objects in for {@link SqlStatementCounter}. Registered at build time only.
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeImageHints.Registrar.class)
+public class NativeImageHints {
+
+    static final String MODEL_PACKAGE = "com.matesRace.backend.model";
+    static final String DTO_PACKAGE = "com.matesRace.backend.dto";
+
+    static class Registrar implements RuntimeHintsRegistrar {
+
+        private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            // Hibernate instantiates entities and reads/writes their fields, including the @IdClass keys
+            for (Class<?> entity : classesIn(MODEL_PACKAGE, classLoader)) {
+                hints.reflection().registerType(entity, MemberCategory.values());
+            }
+
+            // Lombok getters/setters and constructors of every DTO, plus the types they reference
+            bindingRegistrar.registerReflectionHints(hints.reflection(), classesIn(DTO_PACKAGE, classLoader));
+            bindingRegistrar.registerReflectionHints(hints.reflection(), RecentSpanExporter.RecordedSpan.class);
+
+            // spring.jpa.properties.hibernate.javax.cache.provider, instantiated reflectively by Hibernate
+            hints.reflection().registerType(TypeReference.of("com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider"),
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+
+            // Caffeine JCache region sizes and TTLs (Typesafe Config reads it from the classpath)
+            hints.resources().registerPattern("application.conf");
+
+            // datasource-proxy's JdkJdbcProxyFactory; the interface order must match its Proxy.newProxyInstance calls
+            for (Class<?> jdbcType : new Class<?>[]{Connection.class, Statement.class, PreparedStatement.class, CallableStatement.class}) {
+                hints.proxies().registerJdkProxy(ProxyJdbcObject.class, jdbcType);
+            }
+        }
+
+        // Runs during AOT processing on the JVM, so classpath scanning is fine here
+        private static Class<?>[] classesIn(String basePackage, ClassLoader classLoader) {
+            ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+            scanner.addIncludeFilter((reader, factory) -> true);
+            return scanner.findCandidateComponents(basePackage).stream()
+                    .map(BeanDefinition::getBeanClassName)
+                    .map(name -> ClassUtils.resolveClassName(name, classLoader))
+                    .toArray(Class<?>[]::new);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.matesRace.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps finished spans without needing a collector: the most recent ones stay in memory for the
+ * {@code spans} actuator endpoint, and with {@code matesrace.tracing.file} set every span is also
+ * appended to that file as one JSON object per line. Boot wraps every SpanExporter bean in its
+ * batch span processor, so an OTLP exporter can be added next to this one later.
+ */
+@Component
+public class RecentSpanExporter implements SpanExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecentSpanExporter.class);
+
+    private final Deque<RecordedSpan> recent = new ArrayDeque<>();
+    private final int capacity;
+    private final ObjectMapper objectMapper;
+    private final BufferedWriter file;
+
+    public RecentSpanExporter(ObjectMapper objectMapper,
+                              @Value("${matesrace.tracing.recent-spans:2000}") int capacity,
+                              @Value("${matesrace.tracing.file:}") String file) throws IOException {
+        this.objectMapper = objectMapper;
+        this.capacity = capacity;
+        if (StringUtils.hasText(file)) {
+            Path path = Path.of(file);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            this.file = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            logger.info("Appending finished spans to {}", path.toAbsolutePath());
+        } else {
+            this.file = null;
+        }
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        List<RecordedSpan> recorded = spans.stream().map(RecordedSpan::of).toList();
+        synchronized (recent) {
+            for (RecordedSpan span : recorded) {
+                if (recent.size() == capacity) {
+                    recent.removeFirst();
+                }
+                recent.addLast(span);
+            }
+        }
+        if (file != null) {
+            try {
+                synchronized (file) {
+                    for (RecordedSpan span : recorded) {
+                        file.write(objectMapper.writeValueAsString(span));
+                        file.newLine();
+                    }
+                    file.flush();
+                }
+            } catch (IOException e) {
+                logger.warn("Could not write {} span(s) to the trace file: {}", recorded.size(), e.getMessage());
+                return CompletableResultCode.ofFailure();
+            }
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    // Oldest first
+    public List<RecordedSpan> recentSpans() {
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        if (file != null) {
+            try {
+                synchronized (file) {
+                    file.close();
+                }
+            } catch (IOException e) {
+                return CompletableResultCode.ofFailure();
+            }
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    public record RecordedSpan(String traceId, String spanId, String parentSpanId, String name, String kind,
+                               Instant start, long durationMicros, String status, Map<String, String> attributes) {
+
+        static RecordedSpan of(SpanData span) {
+            Map<String, String> attributes = new LinkedHashMap<>();
+            span.getAttributes().forEach((AttributeKey<?> key, Object value) -> attributes.put(key.getKey(), String.valueOf(value)));
+            return new RecordedSpan(
+                    span.getTraceId(),
+                    span.getSpanId(),
+                    span.getParentSpanContext().isValid() ? span.getParentSpanId() : null,
+                    span.getName(),
+                    span.getKind().name(),
+                    Instant.ofEpochSecond(0, span.getStartEpochNanos()),
+                    TimeUnit.NANOSECONDS.toMicros(span.getEndEpochNanos() - span.getStartEpochNanos()),
+                    span.getStatus().getStatusCode().name(),
+                    attributes);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.matesRace.backend.config;
+
+import com.matesRace.backend.config.RecentSpanExporter.RecordedSpan;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/spans}: the recently finished traces held by {@link RecentSpanExporter}, newest
+ * first, each with its spans in start order. {@code /actuator/spans/{traceId}} shows one trace, so a
+ * trace id copied from a log line can be looked up directly. Span tags carry user and race ids, so
+ * {@link SecurityConfig} only lets the OPS role read it.
+ */
+@Component
+@Endpoint(id = "spans")
+public class RecentSpansEndpoint {
+
+    private static final int MAX_TRACES = 50;
+
+    private final RecentSpanExporter exporter;
+
+    public RecentSpansEndpoint(RecentSpanExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    @ReadOperation
+    public List<Trace> traces() {
+        Map<String, List<RecordedSpan>> byTrace = new LinkedHashMap<>();
+        List<RecordedSpan> spans = exporter.recentSpans();
+        Collections.reverse(spans);
+        for (RecordedSpan span : spans) {
+            if (byTrace.size() == MAX_TRACES && !byTrace.containsKey(span.traceId())) {
+                continue;
+            }
+            byTrace.computeIfAbsent(span.traceId(), id -> new ArrayList<>()).add(span);
+        }
+        return byTrace.entrySet().stream().map(e -> Trace.of(e.getKey(), e.getValue())).toList();
+    }
+
+    @ReadOperation
+    public Trace trace(@Selector String traceId) {
+        List<RecordedSpan> spans = exporter.recentSpans().stream()
+                .filter(span -> span.traceId().equals(traceId))
+                .toList();
+        return spans.isEmpty() ? null : Trace.of(traceId, spans);
+    }
+
+    public record Trace(String traceId, String rootName, long durationMicros, List<RecordedSpan> spans) {
+
+        static Trace of(String traceId, List<RecordedSpan> spans) {
+            List<RecordedSpan> ordered = spans.stream().sorted(Comparator.comparing(RecordedSpan::start)).toList();
+            RecordedSpan root = ordered.stream().filter(span -> span.parentSpanId() == null).findFirst().orElse(ordered.get(0));
+            return new Trace(traceId, root.name(), root.durationMicros(), ordered);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.matesRace.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "matesrace.datasource")
+public class ReplicaDataSourceProperties {
+
+    // JDBC URLs of the read replicas. Empty means everything goes to the primary.
+    private List<String> replicaUrls = new ArrayList<>();
+
+    // Credentials for the replicas. Fall back to spring.datasource.* when not set.
+    private String replicaUsername;
+    private String replicaPassword;
+
+    private int replicaMaximumPoolSize = 10;
+
+    // How long a user's read-only transactions stay on the primary after they wrote something.
+    // Set to 0 to always read from the replicas.
+    private Duration readYourWritesWindow = Duration.ofSeconds(10);
+}
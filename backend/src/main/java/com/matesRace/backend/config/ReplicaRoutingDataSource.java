@@ -0,0 +1,87 @@
+package com.matesRace.backend.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to the replicas (round robin) and everything else to the primary.
+ * Must sit behind a LazyConnectionDataSourceProxy so the lookup happens after the transaction's
+ * read-only flag has been set.
+ * <p>
+ * Read-your-writes only holds per node: the record of who wrote recently lives in this JVM. With several
+ * backend instances, a user's next request can land on a node that never saw their write and be served
+ * from a replica that hasn't replayed it yet. Run with sticky sessions, or accept replica lag on those reads.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY_KEY = "primary";
+    private static final int WRITE_TRACKER_SWEEP_THRESHOLD = 10_000;
+
+    private final List<String> replicaKeys;
+    private final long readYourWritesWindowNanos;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    // Principal name -> System.nanoTime() of their last write transaction
+    private final Map<String, Long> lastWriteByUser = new ConcurrentHashMap<>();
+
+    public ReplicaRoutingDataSource(List<String> replicaKeys, Duration readYourWritesWindow) {
+        this.replicaKeys = List.copyOf(replicaKeys);
+        this.readYourWritesWindowNanos = readYourWritesWindow != null ? readYourWritesWindow.toNanos() : 0L;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicaKeys.isEmpty()) {
+            return PRIMARY_KEY;
+        }
+        String user = currentUserName();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                recordWrite(user);
+            }
+            return PRIMARY_KEY;
+        }
+        if (wroteRecently(user)) {
+            return PRIMARY_KEY;
+        }
+        return replicaKeys.get(Math.floorMod(nextReplica.getAndIncrement(), replicaKeys.size()));
+    }
+
+    private void recordWrite(String user) {
+        if (user == null || readYourWritesWindowNanos <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        lastWriteByUser.put(user, now);
+        if (lastWriteByUser.size() > WRITE_TRACKER_SWEEP_THRESHOLD) {
+            lastWriteByUser.values().removeIf(writtenAt -> now - writtenAt > readYourWritesWindowNanos);
+        }
+    }
+
+    private boolean wroteRecently(String user) {
+        if (user == null || readYourWritesWindowNanos <= 0) {
+            return false;
+        }
+        Long writtenAt = lastWriteByUser.get(user);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - writtenAt > readYourWritesWindowNanos) {
+            lastWriteByUser.remove(user, writtenAt);
+            return false;
+        }
+        return true;
+    }
+
+    private static String currentUserName() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : null;
+    }
+}
@@ -0,0 +1,167 @@
+package com.matesRace.backend.config;
+
+import com.matesRace.backend.service.UserRaceIndexService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Startup data fixes for things ddl-auto=update cannot express: backfilling
+ * denormalized columns that Hibernate adds with a default value (once), moving
+ * data out of tables the entities no longer map, and the expression/GIN indexes
+ * behind race search.
+ */
+@Component
+public class SchemaMaintenanceRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMaintenanceRunner.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRaceIndexService userRaceIndexService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${matesrace.schema-maintenance.enabled:true}")
+    private boolean enabled;
+
+    public SchemaMaintenanceRunner(JdbcTemplate jdbcTemplate, UserRaceIndexService userRaceIndexService,
+                                   PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userRaceIndexService = userRaceIndexService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        migrateSegmentIdsToArrayColumn();
+        runOnce("reconcile-race-counters", this::reconcileRaceCounters);
+        backfillUserRaceIndex();
+        createSearchIndexes();
+    }
+
+    // Data migrations that must not repeat on every startup; schema_maintenance_log records the ones applied.
+    // The log row commits together with the migration, so one interrupted midway runs again on the next start.
+    private void runOnce(String name, Runnable migration) {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS schema_maintenance_log (
+                    name varchar(100) PRIMARY KEY,
+                    applied_at timestamptz NOT NULL DEFAULT now())
+                """);
+        transactionTemplate.executeWithoutResult(status -> {
+            int claimed = jdbcTemplate.update(
+                    "INSERT INTO schema_maintenance_log (name) VALUES (?) ON CONFLICT (name) DO NOTHING", name);
+            if (claimed == 1) {
+                migration.run();
+            }
+        });
+    }
+
+    // races.segment_ids replaced the race_segment_ids element-collection table; copy over any race not migrated yet,
+    // then drop the table, whose foreign key to races would otherwise block deleting those races.
+    // Nodes starting together serialise on an advisory lock; whoever gets it second finds the table gone.
+    private void migrateSegmentIdsToArrayColumn() {
+        if (!legacySegmentIdsTableExists()) {
+            return;
+        }
+        Integer migrated = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(hashtext('migrate-race-segment-ids'))");
+            if (!legacySegmentIdsTableExists()) {
+                return null;
+            }
+            int copied = jdbcTemplate.update("""
+                    UPDATE races r
+                    SET segment_ids = s.ids
+                    FROM (SELECT race_id, array_agg(segment_id) AS ids FROM race_segment_ids GROUP BY race_id) s
+                    WHERE s.race_id = r.id AND r.segment_ids IS NULL
+                    """);
+            jdbcTemplate.execute("DROP TABLE IF EXISTS race_segment_ids");
+            return copied;
+        });
+        if (migrated != null) {
+            logger.info("Copied segment ids of {} race(s) from race_segment_ids into races.segment_ids and dropped the table.", migrated);
+        }
+    }
+
+    // Read from pg_tables rather than with to_regclass, whose relation cache can still show a table another node dropped
+    private boolean legacySegmentIdsTableExists() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_tables WHERE schemaname = current_schema() AND tablename = 'race_segment_ids')",
+                Boolean.class));
+    }
+
+    // Brings races.participant_count / submitted_count in line with the participants table for races created before
+    // the counters existed; from then on joining, leaving and submitting keep them current
+    private void reconcileRaceCounters() {
+        int fixed = jdbcTemplate.update("""
+                UPDATE races r
+                SET participant_count = c.participants, submitted_count = c.submitted
+                FROM (SELECT r2.id,
+                             COUNT(p.id) AS participants,
+                             COUNT(p.id) FILTER (WHERE p.submitted_ride) AS submitted
+                      FROM races r2 LEFT JOIN participants p ON p.race_id = r2.id
+                      GROUP BY r2.id) c
+                WHERE c.id = r.id
+                  AND (r.participant_count IS DISTINCT FROM c.participants OR r.submitted_count IS DISTINCT FROM c.submitted)
+                """);
+        if (fixed > 0) {
+            logger.info("Reconciled participant/submission counters on {} race(s).", fixed);
+        }
+    }
+
+    // user_race_index is only maintained from race changes, so a fresh table has to be built once from existing races
+    private void backfillUserRaceIndex() {
+        Boolean needsBackfill = jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM user_race_index) AND EXISTS (SELECT 1 FROM races)", Boolean.class);
+        if (!Boolean.TRUE.equals(needsBackfill)) {
+            return;
+        }
+        int rows = userRaceIndexService.rebuildAll();
+        logger.info("Built the dashboard index with {} row(s).", rows);
+    }
+
+    // Indexes for RaceSearchImpl; the indexed expressions must match the ones in its query
+    private void createSearchIndexes() {
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+        } catch (DataAccessException e) {
+            logger.warn("Could not enable pg_trgm, race search will fail until it is installed: {}", e.getMessage());
+            return;
+        }
+        // Stored rather than an expression index, so checking rows outside the index doesn't recompute to_tsvector
+        jdbcTemplate.execute("""
+                ALTER TABLE races ADD COLUMN IF NOT EXISTS search_vector tsvector
+                GENERATED ALWAYS AS (to_tsvector('simple', coalesce(race_name, '') || ' ' || coalesce(race_info, ''))) STORED
+                """);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_races_search_vector ON races USING gin (search_vector)");
+        jdbcTemplate.execute("""
+                CREATE INDEX IF NOT EXISTS idx_users_name_trgm ON users
+                USING gin ((coalesce(display_name, '') || ' ' || coalesce(user_strava_first_name, '') || ' ' || coalesce(user_strava_last_name, '')) gin_trgm_ops)
+                """);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_races_organiser ON races (organiser_strava_id)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_races_start_date_id ON races (start_date DESC, id DESC)");
+
+        // Vocabulary for spelling correction: every word of race texts and organiser names, numbers aside.
+        // RaceSearchVocabularyRefresher keeps it current; the unique index allows REFRESH ... CONCURRENTLY.
+        jdbcTemplate.execute("""
+                CREATE MATERIALIZED VIEW IF NOT EXISTS race_search_words AS
+                SELECT word FROM ts_stat($$
+                    SELECT search_vector FROM races
+                    UNION ALL
+                    SELECT to_tsvector('simple', coalesce(display_name, '') || ' ' || coalesce(user_strava_first_name, '') || ' ' || coalesce(user_strava_last_name, ''))
+                    FROM users
+                $$)
+                WHERE word !~ '^[0-9]+$'
+                """);
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_race_search_words_word ON race_search_words (word)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_race_search_words_trgm ON race_search_words USING gin (word gin_trgm_ops)");
+    }
+}
@@ -47,6 +47,8 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authorize -> authorize
                         .requestMatchers("/", "/error", "/favicon.ico", "/index.html", "/assets/**", "/vite.svg").permitAll() // Permit basic static resources and error pages
+                        .requestMatchers(HttpMethod.GET, "/actuator/health/**", "/actuator/info", "/actuator/prometheus").permitAll() // Probes and Prometheus scraping; keep the port off the public ingress
+                        .requestMatchers("/actuator/**").hasRole(CustomOAuth2UserService.OPS_ROLE) // Spans and metrics name users, races and queries
                         .requestMatchers(HttpMethod.GET, "/api/user/me").authenticated() // Existing user endpoint
                         .requestMatchers(HttpMethod.POST, "/api/races").authenticated() // Allow authenticated users to create races
                         .requestMatchers(HttpMethod.GET, "/api/races/**").authenticated() // Allow authenticated users to view races (adjust if public view needed)
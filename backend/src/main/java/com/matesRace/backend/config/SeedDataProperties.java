@@ -0,0 +1,52 @@
+package com.matesRace.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "matesrace.seed")
+public class SeedDataProperties {
+
+    // Same seed, same dataset
+    private long randomSeed = 42;
+
+    private int users = 20_000;
+
+    // Generated riders get Strava ids from here upwards, well above real athlete ids
+    private long firstUserId = 1_000_000_000_000L;
+
+    private int races = 2_000;
+
+    // Participants per race follow a log-normal distribution with this median, capped at the maximum
+    private int participantsMedian = 60;
+    private int participantsMax = 1_000;
+
+    private int segmentsMin = 1;
+    private int segmentsMax = 8;
+
+    // Races draw their segments from a shared pool, so popular segments repeat across races
+    private int segmentPool = 5_000;
+
+    // Fraction of participants that submitted a ride, and of submitted rides missing any given segment
+    private double submissionRate = 0.8;
+    private double segmentMissRate = 0.03;
+
+    // Race windows: this share has finished, this share is running, the rest is upcoming
+    private double finishedShare = 0.6;
+    private double runningShare = 0.2;
+    private Duration raceLengthMax = Duration.ofDays(14);
+
+    private double hideLeaderboardShare = 0.3;
+    private double sexCategoriesShare = 0.4;
+
+    // Races are written in COPY batches of this many races (with their participants and results)
+    private int batchRaces = 200;
+
+    // Directory for Strava stub payloads (activities.ndjson); empty skips them
+    private String stubOutputDir = "";
+
+    // Shut the application down once the data is loaded
+    private boolean exitWhenDone = true;
+}
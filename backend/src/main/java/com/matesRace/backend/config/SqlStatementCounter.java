@@ -0,0 +1,35 @@
+package com.matesRace.backend.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+
+/**
+ * Counts the SQL statements executed on the current thread. Registered on the application DataSource
+ * (see {@link DataSourceRoutingConfig}), so Hibernate and JdbcTemplate statements are counted alike;
+ * a JDBC batch counts once. COPY and LISTEN/NOTIFY, which bypass java.sql.Statement, are not counted.
+ * Callers bracket a unit of work with {@link #reset()} and {@link #current()}.
+ */
+public class SqlStatementCounter implements QueryExecutionListener {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        COUNT.get()[0]++;
+    }
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    public static long current() {
+        return COUNT.get()[0];
+    }
+}
@@ -0,0 +1,422 @@
+package com.matesRace.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matesRace.backend.service.UserRaceIndexService;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Loads a synthetic, production-sized dataset for load and scale testing. Run the backend with
+ * {@code --spring.profiles.active=seed}; sizes and distributions come from {@code matesrace.seed.*}.
+ * <p>
+ * Rows go in through Postgres COPY with ids assigned here, so millions of participants and segment
+ * results load in minutes; the identity sequences are moved past the generated ids afterwards.
+ * Generated riders get long-lived placeholder tokens, and with a stub output directory configured
+ * every submitted ride is also written out as the Strava activity payload it was built from, so a
+ * Strava stub (see {@code matesrace.strava.api-base-url}) can serve the submit flow the same data.
+ */
+@Component
+@Profile("seed")
+@EnableConfigurationProperties(SeedDataProperties.class)
+public class SyntheticDataSeeder implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataSeeder.class);
+
+    private static final long FIRST_SEGMENT_ID = 50_000_000L;
+    private static final long FIRST_ACTIVITY_ID = 20_000_000_000L;
+    private static final int USER_COPY_ROWS = 50_000;
+    private static final String[] FIRST_NAMES = {"Anna", "Ben", "Carla", "David", "Emma", "Felix", "Grace", "Hugo", "Ida", "Jonas", "Kari", "Leo", "Maja", "Nils", "Olivia", "Per"};
+    private static final String[] LAST_NAMES = {"Berg", "Dahl", "Eriksen", "Hansen", "Johansen", "Larsen", "Moen", "Nilsen", "Olsen", "Strand", "Vik", "Lund"};
+    private static final String[][] PLACES = {{"Oslo", "Oslo", "Norway"}, {"Bergen", "Vestland", "Norway"}, {"Stockholm", "Stockholm", "Sweden"}, {"London", "England", "United Kingdom"}, {"Girona", "Catalonia", "Spain"}, {"Boulder", "Colorado", "United States"}};
+
+    private static final String COPY_USERS = "COPY users (strava_id, display_name, user_strava_first_name, user_strava_last_name, user_strava_pic, user_sex, user_city, user_state, user_country, user_strava_access, user_strava_refresh, user_token_expire) FROM STDIN WITH (FORMAT csv)";
+    private static final String COPY_RACES = "COPY races (id, race_name, race_info, start_date, end_date, segment_ids, organiser_strava_id, password, is_private, hide_leaderboard_until_finish, use_sex_categories, participant_count, submitted_count) FROM STDIN WITH (FORMAT csv)";
+    private static final String COPY_PARTICIPANTS = "COPY participants (id, race_id, user_strava_id, submitted_ride, submitted_activity_id) FROM STDIN WITH (FORMAT csv)";
+    private static final String COPY_RESULTS = "COPY participant_segment_results (id, participant_id, segment_id, segment_name, elapsed_time_seconds) FROM STDIN WITH (FORMAT csv)";
+
+    private final DataSource dataSource;
+    private final SeedDataProperties properties;
+    private final ObjectMapper objectMapper;
+    private final ConfigurableApplicationContext context;
+    private final UserRaceIndexService userRaceIndexService;
+
+    public SyntheticDataSeeder(@Qualifier("primaryDataSource") DataSource dataSource,
+                               SeedDataProperties properties,
+                               ObjectMapper objectMapper,
+                               ConfigurableApplicationContext context,
+                               UserRaceIndexService userRaceIndexService) {
+        this.dataSource = dataSource;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.context = context;
+        this.userRaceIndexService = userRaceIndexService;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        long started = System.nanoTime();
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        SplittableRandom random = new SplittableRandom(properties.getRandomSeed());
+        Counts counts = new Counts();
+
+        try (Connection connection = dataSource.getConnection();
+             Writer stubs = openStubWriter()) {
+            connection.setAutoCommit(false);
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+
+            seedUsers(connection, copyManager, now);
+
+            long raceId = nextId(connection, "races");
+            long participantId = nextId(connection, "participants");
+            long resultId = nextId(connection, "participant_segment_results");
+
+            for (int first = 0; first < properties.getRaces(); first += properties.getBatchRaces()) {
+                int batchSize = Math.min(properties.getBatchRaces(), properties.getRaces() - first);
+                CsvRows races = new CsvRows();
+                CsvRows participants = new CsvRows();
+                CsvRows results = new CsvRows();
+                for (int i = 0; i < batchSize; i++) {
+                    RaceIds ids = generateRace(random, now, raceId++, participantId, resultId, races, participants, results, stubs, counts);
+                    participantId = ids.nextParticipantId();
+                    resultId = ids.nextResultId();
+                }
+                copy(copyManager, COPY_RACES, races);
+                copy(copyManager, COPY_PARTICIPANTS, participants);
+                copy(copyManager, COPY_RESULTS, results);
+                connection.commit();
+                logger.info("Seeded {}/{} races ({} participants, {} segment results so far).",
+                        first + batchSize, properties.getRaces(), counts.participants, counts.results);
+            }
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT setval(pg_get_serial_sequence('races', 'id'), (SELECT COALESCE(MAX(id), 0) + 1 FROM races), false)");
+                statement.execute("SELECT setval(pg_get_serial_sequence('participants', 'id'), (SELECT COALESCE(MAX(id), 0) + 1 FROM participants), false)");
+                statement.execute("SELECT setval(pg_get_serial_sequence('participant_segment_results', 'id'), (SELECT COALESCE(MAX(id), 0) + 1 FROM participant_segment_results), false)");
+                connection.commit();
+                connection.setAutoCommit(true);
+                statement.execute("ANALYZE users, races, participants, participant_segment_results");
+            }
+        }
+        // COPY bypasses the race change events that keep the dashboard index current
+        int indexRows = userRaceIndexService.rebuildAll();
+        logger.info("Rebuilt the dashboard index with {} row(s).", indexRows);
+
+        logger.info("Seed data loaded in {} s: {} users, {} races, {} participants, {} segment results, {} stub activities.",
+                Duration.ofNanos(System.nanoTime() - started).toSeconds(), properties.getUsers(), properties.getRaces(),
+                counts.participants, counts.results, counts.activities);
+
+        if (properties.isExitWhenDone()) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    private void seedUsers(Connection connection, CopyManager copyManager, Instant now) throws SQLException {
+        long firstId = properties.getFirstUserId();
+        long lastId = firstId + properties.getUsers();
+        long existing;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM users WHERE strava_id >= " + firstId + " AND strava_id < " + lastId)) {
+            rs.next();
+            existing = rs.getLong(1);
+        }
+        if (existing == properties.getUsers()) {
+            logger.info("The {} seed users already exist; adding races for them.", existing);
+            return;
+        }
+        if (existing > 0) {
+            throw new IllegalStateException("Found " + existing + " users in the seed id range [" + firstId + ", " + lastId
+                    + ") but expected 0 or " + properties.getUsers() + "; change matesrace.seed.first-user-id or remove them.");
+        }
+
+        LocalDateTime tokenExpiry = LocalDateTime.ofInstant(now.plus(365, ChronoUnit.DAYS), ZoneOffset.UTC);
+        CsvRows rows = new CsvRows();
+        for (int i = 0; i < properties.getUsers(); i++) {
+            long stravaId = firstId + i;
+            // Derived from the index rather than the shared random so a user looks the same in every run
+            String firstName = FIRST_NAMES[(int) (stravaId % FIRST_NAMES.length)];
+            String lastName = LAST_NAMES[(int) ((stravaId / FIRST_NAMES.length) % LAST_NAMES.length)];
+            String[] place = PLACES[(int) ((stravaId / 7) % PLACES.length)];
+            String sex = switch ((int) (stravaId % 20)) {
+                case 0 -> null;
+                case 1, 2, 3, 4, 5, 6, 7 -> "F";
+                default -> "M";
+            };
+            rows.field(stravaId).field(firstName + " " + lastName).field(firstName).field(lastName)
+                    .field("https://example.com/seed/" + stravaId + ".jpg").field(sex)
+                    .field(place[0]).field(place[1]).field(place[2])
+                    .field("seed-access-" + stravaId).field("seed-refresh-" + stravaId).field(tokenExpiry.toString())
+                    .endRow();
+            if (rows.size() == USER_COPY_ROWS) {
+                copy(copyManager, COPY_USERS, rows);
+                rows = new CsvRows();
+            }
+        }
+        copy(copyManager, COPY_USERS, rows);
+        connection.commit();
+        logger.info("Seeded {} users with Strava ids {} to {}.", properties.getUsers(), firstId, lastId - 1);
+    }
+
+    private RaceIds generateRace(SplittableRandom random, Instant now, long raceId, long participantId, long resultId,
+                                 CsvRows races, CsvRows participants, CsvRows results, Writer stubs, Counts counts) throws IOException {
+        long length = Math.max(3600, (long) (random.nextDouble() * properties.getRaceLengthMax().toSeconds()));
+        double window = random.nextDouble();
+        Instant start;
+        double submissionRate;
+        if (window < properties.getFinishedShare()) {
+            start = now.minusSeconds(length + random.nextLong(1, 365L * 24 * 3600));
+            submissionRate = properties.getSubmissionRate();
+        } else if (window < properties.getFinishedShare() + properties.getRunningShare()) {
+            start = now.minusSeconds(random.nextLong(0, length));
+            submissionRate = properties.getSubmissionRate() / 2;
+        } else {
+            start = now.plusSeconds(random.nextLong(3600, 60L * 24 * 3600));
+            submissionRate = 0;
+        }
+        Instant end = start.plusSeconds(length);
+
+        long[] segmentIds = sample(random, properties.getSegmentPool(),
+                random.nextInt(properties.getSegmentsMin(), properties.getSegmentsMax() + 1));
+        for (int i = 0; i < segmentIds.length; i++) {
+            segmentIds[i] += FIRST_SEGMENT_ID;
+        }
+
+        int participantCount = (int) Math.round(Math.exp(Math.log(properties.getParticipantsMedian()) + random.nextGaussian()));
+        participantCount = Math.max(1, Math.min(participantCount, Math.min(properties.getParticipantsMax(), properties.getUsers())));
+        long[] riders = sample(random, properties.getUsers(), participantCount);
+        long organiserId = properties.getFirstUserId() + riders[0]; // The organiser is always the first participant
+
+        int submitted = 0;
+        for (long riderIndex : riders) {
+            long riderId = properties.getFirstUserId() + riderIndex;
+            boolean submittedRide = random.nextDouble() < submissionRate;
+            Long activityId = submittedRide ? FIRST_ACTIVITY_ID + participantId : null;
+            participants.field(participantId).field(raceId).field(riderId).field(submittedRide).field(activityId).endRow();
+
+            if (submittedRide) {
+                submitted++;
+                double fitness = 0.8 + (riderIndex % 97) / 120.0; // Stable per rider, so leaderboards have consistent leaders
+                Instant rideStart = start.plusSeconds(random.nextLong(0, Math.max(1, length - 7200)));
+                List<Map<String, Object>> efforts = new ArrayList<>();
+                for (long segmentId : segmentIds) {
+                    if (random.nextDouble() < properties.getSegmentMissRate()) {
+                        continue;
+                    }
+                    int elapsed = (int) Math.max(30, baseSegmentTime(segmentId) * fitness * (1 + 0.05 * random.nextGaussian()));
+                    results.field(resultId++).field(participantId).field(segmentId).field(segmentName(segmentId)).field(elapsed).endRow();
+                    counts.results++;
+                    efforts.add(effort(activityId, efforts.size(), segmentId, elapsed, rideStart));
+                }
+                if (stubs != null) {
+                    // A few efforts on segments outside the race, like a real ride has
+                    for (int extra = random.nextInt(1, 6); extra > 0; extra--) {
+                        long otherSegment = FIRST_SEGMENT_ID + properties.getSegmentPool() + random.nextInt(100_000);
+                        efforts.add(effort(activityId, efforts.size(), otherSegment, baseSegmentTime(otherSegment), rideStart));
+                    }
+                    writeActivity(stubs, activityId, riderId, rideStart, efforts);
+                    counts.activities++;
+                }
+            }
+            participantId++;
+        }
+        counts.participants += riders.length;
+
+        boolean hideLeaderboard = random.nextDouble() < properties.getHideLeaderboardShare();
+        boolean sexCategories = random.nextDouble() < properties.getSexCategoriesShare();
+        races.field(raceId).field("Seed race " + raceId).field("Synthetic race generated for scale testing")
+                .field(start.toString()).field(end.toString()).field(arrayLiteral(segmentIds)).field(organiserId)
+                .field("seedpass").field(true).field(hideLeaderboard).field(sexCategories)
+                .field(riders.length).field(submitted)
+                .endRow();
+        return new RaceIds(participantId, resultId);
+    }
+
+    private static Map<String, Object> effort(long activityId, int index, long segmentId, int elapsed, Instant rideStart) {
+        Map<String, Object> segment = new LinkedHashMap<>();
+        segment.put("id", segmentId);
+        segment.put("resource_state", 2);
+        segment.put("name", segmentName(segmentId));
+        segment.put("activity_type", "Ride");
+        Map<String, Object> effort = new LinkedHashMap<>();
+        effort.put("id", activityId * 100 + index);
+        effort.put("resource_state", 2);
+        effort.put("name", segmentName(segmentId));
+        effort.put("elapsed_time", elapsed);
+        effort.put("moving_time", elapsed);
+        effort.put("start_date", rideStart.plusSeconds(index * 900L).toString());
+        effort.put("segment", segment);
+        return effort;
+    }
+
+    // One DetailedActivity per line, shaped like GET /activities/{id} (which also covers the list fields)
+    private void writeActivity(Writer stubs, long activityId, long riderId, Instant rideStart, List<Map<String, Object>> efforts) throws IOException {
+        int elapsed = efforts.stream().mapToInt(e -> (Integer) e.get("elapsed_time")).sum() + 1800;
+        Map<String, Object> activity = new LinkedHashMap<>();
+        activity.put("id", activityId);
+        activity.put("resource_state", 3);
+        activity.put("athlete", Map.of("id", riderId, "resource_state", 1));
+        activity.put("name", "Seed ride " + activityId);
+        activity.put("type", "Ride");
+        activity.put("sport_type", "Ride");
+        activity.put("start_date", rideStart.toString());
+        activity.put("start_date_local", rideStart.toString());
+        activity.put("distance", elapsed * 8.5);
+        activity.put("moving_time", elapsed - 600);
+        activity.put("elapsed_time", elapsed);
+        activity.put("segment_efforts", efforts);
+        stubs.write(objectMapper.writeValueAsString(activity));
+        stubs.write('\n');
+    }
+
+    private Writer openStubWriter() throws IOException {
+        if (properties.getStubOutputDir() == null || properties.getStubOutputDir().isBlank()) {
+            return null;
+        }
+        Path directory = Files.createDirectories(Path.of(properties.getStubOutputDir()));
+        Path file = directory.resolve("activities.ndjson");
+        logger.info("Writing Strava stub activities to {}", file.toAbsolutePath());
+        return new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private static long nextId(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void copy(CopyManager copyManager, String sql, CsvRows rows) throws SQLException {
+        if (rows.size() == 0) {
+            return;
+        }
+        byte[] bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+        CopyIn copyIn = copyManager.copyIn(sql);
+        try {
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    // k distinct values from [0, n) in random order (Floyd's algorithm, O(k))
+    private static long[] sample(SplittableRandom random, int n, int k) {
+        Set<Integer> chosen = new HashSet<>(k * 2);
+        long[] picked = new long[k];
+        int count = 0;
+        for (int j = n - k; j < n; j++) {
+            int t = random.nextInt(j + 1);
+            int value = chosen.add(t) ? t : j;
+            if (value == j) {
+                chosen.add(j);
+            }
+            picked[count++] = value;
+        }
+        for (int i = k - 1; i > 0; i--) {
+            int swap = random.nextInt(i + 1);
+            long tmp = picked[i];
+            picked[i] = picked[swap];
+            picked[swap] = tmp;
+        }
+        return picked;
+    }
+
+    private static int baseSegmentTime(long segmentId) {
+        return 120 + (int) ((segmentId * 31) % 1500);
+    }
+
+    private static String segmentName(long segmentId) {
+        return "Seed segment " + segmentId;
+    }
+
+    private static String arrayLiteral(long[] values) {
+        StringBuilder literal = new StringBuilder("{");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                literal.append(',');
+            }
+            literal.append(values[i]);
+        }
+        return literal.append('}').toString();
+    }
+
+    private record RaceIds(long nextParticipantId, long nextResultId) {
+    }
+
+    private static final class Counts {
+        long participants;
+        long results;
+        long activities;
+    }
+
+    // COPY ... WITH (FORMAT csv) rows: unquoted empty field is NULL, text is quoted with "" escapes
+    private static final class CsvRows {
+        private final StringBuilder buffer = new StringBuilder(1 << 16);
+        private boolean rowStarted;
+        private int rows;
+
+        CsvRows field(Object value) {
+            if (rowStarted) {
+                buffer.append(',');
+            }
+            rowStarted = true;
+            if (value instanceof String text) {
+                buffer.append('"').append(text.replace("\"", "\"\"")).append('"');
+            } else if (value != null) {
+                buffer.append(value);
+            }
+            return this;
+        }
+
+        void endRow() {
+            buffer.append('\n');
+            rowStarted = false;
+            rows++;
+        }
+
+        int size() {
+            return rows;
+        }
+
+        @Override
+        public String toString() {
+            return buffer.toString();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.matesRace.backend.config;
+
+import io.micrometer.tracing.exporter.SpanExportingPredicate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TracingConfig {
+
+    // The invalidation and profile-sync sweeps run several times a second and would push request traces out of the buffer
+    @Bean
+    public SpanExportingPredicate scheduledTaskSpanFilter(@Value("${matesrace.tracing.include-scheduled-tasks:false}") boolean includeScheduledTasks) {
+        return span -> includeScheduledTasks || !span.getName().startsWith("task ");
+    }
+}
@@ -0,0 +1,184 @@
+package com.matesRace.backend.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matesRace.backend.dto.ParticipantSummaryDTO;
+import com.matesRace.backend.dto.RaceResponseDTO;
+import com.matesRace.backend.model.Participant;
+import com.matesRace.backend.model.ParticipantSegmentResult;
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.model.User;
+import com.matesRace.backend.service.LeaderboardRanker;
+import com.matesRace.backend.service.RaceDtoConverter;
+import com.matesRace.backend.service.SegmentEffortMatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NativeDetector;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the hot request paths (race DTO conversion, JSON writing, Strava activity parsing, segment
+ * matching, leaderboard ranking) on in-memory data before the instance takes traffic, so the JIT has
+ * compiled them by the first real request. Application runners finish before Spring Boot switches
+ * the readiness state to ACCEPTING_TRAFFIC, so /actuator/health/readiness stays down until this is done.
+ * Nothing here touches the database or the application's metrics.
+ */
+@Component
+public class WarmupRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmupRunner.class);
+
+    private static final long ORGANISER_ID = 1L;
+    private static final long FIRST_RIDER_ID = 1_000L;
+    private static final int SEGMENTS = 5;
+
+    private final RaceDtoConverter raceDtoConverter;
+    private final LeaderboardRanker leaderboardRanker;
+    private final ObjectMapper objectMapper;
+
+    @Value("${matesrace.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${matesrace.warmup.iterations:200}")
+    private int iterations;
+
+    @Value("${matesrace.warmup.participants:200}")
+    private int participants;
+
+    @Value("${matesrace.warmup.max-duration:PT15S}")
+    private Duration maxDuration;
+
+    public WarmupRunner(LeaderboardRanker leaderboardRanker, ObjectMapper objectMapper) {
+        // Same code, own registry: the synthetic conversions must not show up in matesrace.dto.conversion
+        this.raceDtoConverter = new RaceDtoConverter(new SimpleMeterRegistry());
+        this.leaderboardRanker = leaderboardRanker;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!enabled || iterations <= 0 || NativeDetector.inNativeImage()) {
+            return; // A native image is compiled ahead of time, there is no JIT to warm up
+        }
+        long started = System.nanoTime();
+        long deadline = started + maxDuration.toNanos();
+
+        Race race = syntheticRace();
+        List<Long> segmentIds = Arrays.stream(race.getSegmentIds()).boxed().toList();
+        OAuth2User rider = viewer(FIRST_RIDER_ID);
+        OAuth2User organiser = viewer(ORGANISER_ID);
+        byte[] activity = activityJson(race.getSegmentIds()).getBytes(StandardCharsets.UTF_8);
+        Participant participant = race.getParticipants().get(0);
+
+        int done = 0;
+        long sink = 0; // Keeps the results observable so the JIT can't drop the work
+        while (done < iterations && System.nanoTime() < deadline) {
+            RaceResponseDTO riderView = raceDtoConverter.convertToRaceResponseDTO(race, true, rider);
+            RaceResponseDTO organiserView = raceDtoConverter.convertToRaceResponseDTO(race, true, organiser);
+            sink += objectMapper.writeValueAsBytes(riderView).length;
+            sink += objectMapper.writeValueAsBytes(raceDtoConverter.convertToRaceSummaryDTO(race)).length;
+
+            List<ParticipantSummaryDTO> rows = organiserView.getParticipants();
+            sink += leaderboardRanker.rank(rows, segmentIds).size();
+
+            Map<String, Object> parsed = objectMapper.readValue(activity, new TypeReference<Map<String, Object>>() {});
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> efforts = (List<Map<String, Object>>) parsed.get("segment_efforts");
+            sink += SegmentEffortMatcher.match(efforts, race.getSegmentIds(), participant, 1L).size();
+            done++;
+        }
+
+        logger.info("JIT warm-up ran {} of {} iterations in {} ms (checksum {}).",
+                done, iterations, Duration.ofNanos(System.nanoTime() - started).toMillis(), sink);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void logReady(ApplicationReadyEvent event) {
+        logger.info("Ready for traffic {} ms after JVM start.", ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    // A running race with hidden times, the most expensive view to build; most riders submitted every segment
+    private Race syntheticRace() {
+        Race race = new Race();
+        race.setId(-1L);
+        race.setRaceName("Warm-up race");
+        race.setOrganiser(user(ORGANISER_ID));
+        race.setStartDate(Instant.now().minus(1, ChronoUnit.DAYS));
+        race.setEndDate(Instant.now().plus(1, ChronoUnit.DAYS));
+        long[] segmentIds = new long[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segmentIds[i] = 600_000L + i;
+        }
+        race.setSegmentIds(segmentIds);
+        race.setHideLeaderboardUntilFinish(true);
+        race.setUseSexCategories(true);
+        race.setParticipantCount(participants);
+
+        for (int i = 0; i < participants; i++) {
+            Participant participant = new Participant();
+            participant.setId((long) i + 1);
+            participant.setRace(race);
+            participant.setUser(user(FIRST_RIDER_ID + i));
+            participant.setSubmittedRide(i % 8 != 0);
+            if (participant.isSubmittedRide()) {
+                for (long segmentId : segmentIds) {
+                    ParticipantSegmentResult result = new ParticipantSegmentResult();
+                    result.setParticipant(participant);
+                    result.setSegmentId(segmentId);
+                    result.setSegmentName("Segment " + segmentId);
+                    result.setElapsedTimeSeconds(300 + (i * 37 + (int) segmentId) % 900);
+                    participant.getSegmentResults().add(result);
+                }
+            }
+            race.getParticipants().add(participant);
+        }
+        return race;
+    }
+
+    private static User user(long stravaId) {
+        return new User(stravaId, "Rider " + stravaId, "Rider", String.valueOf(stravaId), null,
+                stravaId % 2 == 0 ? "M" : "F", null, null, null);
+    }
+
+    private static OAuth2User viewer(long stravaId) {
+        return new DefaultOAuth2User(List.of(), Map.of("id", stravaId), "id");
+    }
+
+    // The parts of a Strava DetailedActivity that submission reads, plus enough noise to exercise skipping
+    private static String activityJson(long[] raceSegmentIds) {
+        StringBuilder json = new StringBuilder("{\"id\":1,\"name\":\"Warm-up ride\",\"type\":\"Ride\",\"distance\":40211.3,")
+                .append("\"start_date\":\"2025-05-10T06:12:44Z\",\"athlete\":{\"id\":1000},\"segment_efforts\":[");
+        for (int i = 0; i < 40; i++) {
+            long segmentId = i < raceSegmentIds.length ? raceSegmentIds[i] : 9_000_000L + i;
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(3_000_000_000L + i)
+                    .append(",\"name\":\"Segment ").append(segmentId)
+                    .append("\",\"elapsed_time\":").append(60 + i * 17)
+                    .append(",\"moving_time\":").append(55 + i * 17)
+                    .append(",\"start_date\":\"2025-05-10T06:30:00Z\",\"average_watts\":201.4")
+                    .append(",\"segment\":{\"id\":").append(segmentId)
+                    .append(",\"name\":\"Segment ").append(segmentId)
+                    .append("\",\"distance\":1200.7,\"average_grade\":3.1,\"start_latlng\":[59.91,10.75],\"end_latlng\":[59.93,10.77],\"private\":false}}");
+        }
+        return json.append("]}").toString();
+    }
+}
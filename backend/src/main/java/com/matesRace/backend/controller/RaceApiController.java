@@ -1,38 +1,64 @@
 package com.matesRace.backend.controller;
 
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-import com.matesRace.backend.dto.ParticipantSegmentResultDTO;
 import com.matesRace.backend.dto.StravaActivityDTO;
+import com.matesRace.backend.dto.DashboardRaceDTO;
 import com.matesRace.backend.dto.SubmitActivityRequestDTO;
-import com.matesRace.backend.model.ParticipantSegmentResult;
+import com.matesRace.backend.dto.TrackSubmissionResultDTO;
 import com.matesRace.backend.dto.RaceCreateDTO;
 import com.matesRace.backend.dto.RaceResponseDTO;
-import com.matesRace.backend.dto.ParticipantSummaryDTO;
-import com.matesRace.backend.dto.UserSummaryDTO;
+import com.matesRace.backend.dto.RaceSummaryDTO;
+import com.matesRace.backend.dto.RaceSearchPageDTO;
 import com.matesRace.backend.dto.JoinRaceRequestDto;
+import com.matesRace.backend.dto.LeaderboardDTO;
+import com.matesRace.backend.dto.LeaderboardEntryDTO;
+import com.matesRace.backend.dto.ParticipantSummaryDTO;
+import com.matesRace.backend.dto.RaceImportResultDTO;
 import com.matesRace.backend.model.Participant;
 import com.matesRace.backend.model.Race;
 import com.matesRace.backend.model.User;
+import com.matesRace.backend.model.UserRaceIndexEntry;
+import com.matesRace.backend.service.CacheInvalidationBus;
+import com.matesRace.backend.service.LeaderboardRanker;
+import com.matesRace.backend.service.RaceDtoConverter;
+import com.matesRace.backend.service.RaceFinalizationService;
+import com.matesRace.backend.service.RaceImportService;
+import com.matesRace.backend.service.RaceResultsExporter;
 import com.matesRace.backend.service.StravaService;
+import com.matesRace.backend.service.TrackPoints;
+import com.matesRace.backend.service.TrackSubmissionService;
 import com.matesRace.backend.repository.RaceRepository;
 import com.matesRace.backend.repository.UserRepository;
 import com.matesRace.backend.repository.ParticipantRepository;
+import com.matesRace.backend.repository.ParticipantSegmentResultRepository;
+import com.matesRace.backend.repository.UserRaceIndexRepository;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.hibernate.Hibernate;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.Collections;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.ArrayList;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -41,6 +67,8 @@ import java.util.stream.Collectors;
 public class RaceApiController {
 
     private static final Logger logger = LoggerFactory.getLogger(RaceApiController.class);
+    private static final int MIN_SEARCH_CHARS = 2;
+    private static final int MAX_SEARCH_CHARS = 100;
 
     @Autowired
     private RaceRepository raceRepository;
@@ -54,8 +82,44 @@ public class RaceApiController {
     @Autowired
     private ParticipantRepository participantRepository;
 
-    @PersistenceContext
-    private EntityManager entityManager;
+    @Autowired
+    private RaceDtoConverter raceDtoConverter;
+
+    @Autowired
+    private RaceFinalizationService raceFinalizationService;
+
+    @Autowired
+    private UserRaceIndexRepository userRaceIndexRepository;
+
+    @Autowired
+    private ParticipantSegmentResultRepository segmentResultRepository;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
+    @Autowired
+    private LeaderboardRanker leaderboardRanker;
+
+    @Autowired
+    private RaceResultsExporter raceResultsExporter;
+
+    @Autowired
+    private RaceImportService raceImportService;
+
+    @Autowired
+    private TrackSubmissionService trackSubmissionService;
+
+    @Value("${matesrace.races.search.page-size:20}")
+    private int searchPageSize;
+
+    @Value("${matesrace.races.search.max-page-size:50}")
+    private int maxSearchPageSize;
+
+    @Value("${matesrace.races.batch.max-ids:50}")
+    private int maxBatchIds;
 
 
     @PostMapping
@@ -112,7 +176,7 @@ public class RaceApiController {
             return ResponseEntity.badRequest().body("Invalid date format. Please use ISO 8601 format (e.g., yyyy-MM-ddTHH:mm:ss.SSSZ)");
         }
 
-        newRace.setSegmentIds(raceDTO.getSegmentIds());
+        newRace.setSegmentIds(toSegmentIdArray(raceDTO.getSegmentIds()));
         newRace.setOrganiser(organiser);
         newRace.setHideLeaderboardUntilFinish(raceDTO.isHideLeaderboardUntilFinish());
         newRace.setUseSexCategories(raceDTO.isUseSexCategories()); // Set new field
@@ -120,6 +184,7 @@ public class RaceApiController {
         // Force private
         newRace.setPrivate(true);
         newRace.setPassword(raceDTO.getPassword());
+        newRace.setParticipantCount(1); // The organiser is added as the first participant below
 
 
         try {
@@ -131,19 +196,19 @@ public class RaceApiController {
             organiserParticipant.setUser(organiser);
             organiserParticipant.setSubmittedRide(false);
             participantRepository.save(organiserParticipant);
+            savedRace.getParticipants().add(organiserParticipant);
             logger.info("Organiser {} automatically added as participant to race {}", organiser.getStravaId(), savedRace.getId());
+            cacheInvalidationBus.raceChanged(savedRace.getId());
+            stravaService.fetchSegmentGeometry(oauth2User, savedRace.getSegmentIds()); // For scoring uploaded tracks; fetched after commit
 
             Race raceWithOrganiserAsParticipant = raceRepository.findById(savedRace.getId()).orElse(savedRace);
             // Initialize for DTO
             Hibernate.initialize(raceWithOrganiserAsParticipant.getOrganiser());
             Hibernate.initialize(raceWithOrganiserAsParticipant.getParticipants());
-            raceWithOrganiserAsParticipant.getParticipants().forEach(p -> {
-                Hibernate.initialize(p.getUser());
-                Hibernate.initialize(p.getSegmentResults());
-            });
+            participantRepository.fetchSegmentResultsByRaceId(raceWithOrganiserAsParticipant.getId()); // One query for every participant; users come with findById's entity graph
 
 
-            return ResponseEntity.status(HttpStatus.CREATED).body(convertToRaceResponseDTO(raceWithOrganiserAsParticipant, true, oauth2User));
+            return ResponseEntity.status(HttpStatus.CREATED).body(raceDtoConverter.convertToRaceResponseDTO(raceWithOrganiserAsParticipant, true, oauth2User));
         } catch (Exception e) {
             logger.error("Error saving race or adding organiser as participant: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to create race due to server error");
@@ -152,25 +217,212 @@ public class RaceApiController {
 
     @GetMapping
     @Transactional(readOnly = true)
-    public ResponseEntity<List<RaceResponseDTO>> getAllRaces(@AuthenticationPrincipal OAuth2User oauth2User) {
-        List<Race> races = raceRepository.findAll();
-        List<RaceResponseDTO> raceDTOs = races.stream()
-                .map(race -> {
-                    Hibernate.initialize(race.getOrganiser());
-                    Hibernate.initialize(race.getParticipants());
-                    race.getParticipants().forEach(p -> {
-                        Hibernate.initialize(p.getUser());
-                        Hibernate.initialize(p.getSegmentResults());
-                    });
-                    return convertToRaceResponseDTO(race, false, oauth2User);
-                })
+    public ResponseEntity<List<RaceSummaryDTO>> getAllRaces(@AuthenticationPrincipal OAuth2User oauth2User) {
+        List<Race> races = raceRepository.findAllWithOrganiser();
+        List<RaceSummaryDTO> raceDTOs = races.stream()
+                .map(raceDtoConverter::convertToRaceSummaryDTO)
                 .collect(Collectors.toList());
         return ResponseEntity.ok(raceDTOs);
     }
 
+    // Keyset-paginated search over race name, race info and organiser name, newest races first
+    @GetMapping("/search")
+    @Transactional(readOnly = true)
+    public ResponseEntity<RaceSearchPageDTO> searchRaces(@RequestParam("q") String q,
+                                                         @RequestParam(value = "after", required = false) String after,
+                                                         @RequestParam(value = "limit", required = false) Integer limit) {
+        String text = q.strip();
+        if (text.codePoints().filter(Character::isLetterOrDigit).count() < MIN_SEARCH_CHARS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search text needs at least " + MIN_SEARCH_CHARS + " letters or digits");
+        }
+        if (text.length() > MAX_SEARCH_CHARS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Search text is limited to " + MAX_SEARCH_CHARS + " characters");
+        }
+        int pageSize = limit == null ? searchPageSize : Math.max(1, Math.min(limit, maxSearchPageSize));
+
+        // Cursor: "c" when the pages are for the spell-corrected text, then start date and id of the last race shown
+        boolean corrected = false;
+        Instant afterStartDate = null;
+        Long afterId = null;
+        if (after != null && !after.isBlank()) {
+            try {
+                String[] cursor = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8).split("\\|", 3);
+                corrected = "c".equals(cursor[0]);
+                afterStartDate = Instant.parse(cursor[1]);
+                afterId = Long.parseLong(cursor[2]);
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid search cursor");
+            }
+        }
+
+        String correctedText = corrected ? raceRepository.correctSpelling(text) : null;
+        List<Long> ids = raceRepository.searchRaceIds(corrected ? correctedText : text, afterStartDate, afterId, pageSize);
+        if (ids.isEmpty() && afterId == null) {
+            // Nothing matches as typed: retry once with each word replaced by the closest word races actually use
+            String suggestion = raceRepository.correctSpelling(text);
+            if (!suggestion.equalsIgnoreCase(text)) {
+                corrected = true;
+                correctedText = suggestion;
+                ids = raceRepository.searchRaceIds(correctedText, null, null, pageSize);
+            }
+        }
+        if (ids.isEmpty()) {
+            return ResponseEntity.ok(new RaceSearchPageDTO(List.of(), corrected ? correctedText : null, null));
+        }
+        Map<Long, Race> racesById = raceRepository.findAllWithOrganiserByIdIn(ids).stream()
+                .collect(Collectors.toMap(Race::getId, race -> race));
+        List<Race> races = ids.stream().map(racesById::get).filter(Objects::nonNull).collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (ids.size() == pageSize && !races.isEmpty()) {
+            Race last = races.get(races.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    ((corrected ? "c" : "e") + "|" + last.getStartDate() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        List<RaceSummaryDTO> raceDTOs = races.stream()
+                .map(raceDtoConverter::convertToRaceSummaryDTO)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(new RaceSearchPageDTO(raceDTOs, corrected ? correctedText : null, nextCursor));
+    }
+
     @GetMapping("/{id}")
     @Transactional(readOnly = true)
     public ResponseEntity<RaceResponseDTO> getRaceById(@PathVariable Long id, @AuthenticationPrincipal OAuth2User oauth2User) {
+        return ResponseEntity.ok(raceDetailView(id, oauth2User));
+    }
+
+    // Several race details in one response and a fixed number of queries: snapshots, race graphs, segment results.
+    // Same views as GET /{id}; unknown ids are left out, the rest come back in request order.
+    @GetMapping("/batch")
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<RaceResponseDTO>> getRacesBatch(@RequestParam("ids") List<Long> ids, @AuthenticationPrincipal OAuth2User oauth2User) {
+        List<Long> raceIds = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (raceIds.size() > maxBatchIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + maxBatchIds + " race ids per request.");
+        }
+        if (raceIds.isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+
+        Map<Long, RaceResponseDTO> views = new HashMap<>(
+                raceFinalizationService.findSnapshotsForViewer(raceIds, oauth2User != null ? oauth2User.getName() : null));
+        List<Long> liveIds = raceIds.stream().filter(id -> !views.containsKey(id)).collect(Collectors.toList());
+        if (!liveIds.isEmpty()) {
+            List<Race> races = raceRepository.findWithParticipantsByIdIn(liveIds);
+            participantRepository.fetchSegmentResultsByRaceIdIn(liveIds);
+            for (Race race : races) {
+                views.put(race.getId(), raceDtoConverter.convertToRaceResponseDTO(race, true, oauth2User));
+            }
+        }
+        return ResponseEntity.ok(raceIds.stream().map(views::get).filter(Objects::nonNull).collect(Collectors.toList()));
+    }
+
+    // Ranked like the race page, from the same view the caller gets from GET /{id}, so hidden times stay hidden
+    @GetMapping("/{id}/leaderboard")
+    @Transactional(readOnly = true)
+    public ResponseEntity<LeaderboardDTO> getLeaderboard(@PathVariable Long id, @AuthenticationPrincipal OAuth2User oauth2User) {
+        RaceResponseDTO race = raceDetailView(id, oauth2User);
+        List<ParticipantSummaryDTO> participants = race.getParticipants();
+
+        Map<String, List<LeaderboardEntryDTO>> categories = new LinkedHashMap<>();
+        if (race.isUseSexCategories()) {
+            for (String category : List.of("M", "F", "other")) {
+                List<ParticipantSummaryDTO> inCategory = participants.stream()
+                        .filter(p -> category.equals(LeaderboardRanker.category(p)))
+                        .collect(Collectors.toList());
+                categories.put(category, leaderboardRanker.rank(inCategory, race.getSegmentIds()));
+            }
+        }
+        return ResponseEntity.ok(new LeaderboardDTO(race.getId(), race.isUseSexCategories(),
+                leaderboardRanker.rank(participants, race.getSegmentIds()), categories));
+    }
+
+    // Results download for spreadsheets and scripts, streamed row by row with the same hidden-time rules as GET /{id}
+    @GetMapping("/{id}/results.csv")
+    public ResponseEntity<StreamingResponseBody> exportResultsCsv(@PathVariable Long id, @AuthenticationPrincipal OAuth2User oauth2User) {
+        return exportResults(id, oauth2User, RaceResultsExporter.Format.CSV, new MediaType("text", "csv", StandardCharsets.UTF_8), "csv");
+    }
+
+    @GetMapping("/{id}/results.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportResultsNdjson(@PathVariable Long id, @AuthenticationPrincipal OAuth2User oauth2User) {
+        return exportResults(id, oauth2User, RaceResultsExporter.Format.NDJSON, MediaType.APPLICATION_NDJSON, "ndjson");
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportResults(Long id, OAuth2User oauth2User, RaceResultsExporter.Format format,
+                                                                MediaType contentType, String extension) {
+        if (oauth2User == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not authenticated");
+        }
+        long stravaId;
+        try {
+            stravaId = Long.parseLong(oauth2User.getName());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid Strava ID format for current user in exportResults: {}", oauth2User.getName());
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid Strava ID format for current user.");
+        }
+        // The race's own fields are enough (usually from the second-level cache); the rows are streamed by the exporter
+        Race race = raceRepository.findSummaryById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Race not found with ID: " + id));
+        // Decided here, on the request thread; the body is written later from an async thread
+        boolean showAllTimes = RaceResultsExporter.showsAllTimes(race, stravaId, Instant.now());
+
+        StreamingResponseBody body = out -> raceResultsExporter.writeResults(id, showAllTimes, stravaId, format, out);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("race-" + id + "-results." + extension).build().toString())
+                .body(body);
+    }
+
+    // Organiser-only bulk load of participants and times, in the same shapes as the results export
+    @PostMapping(value = "/{id}/import", consumes = "text/csv")
+    public ResponseEntity<RaceImportResultDTO> importResultsCsv(@PathVariable Long id, InputStream body,
+                                                                @RequestParam(defaultValue = "false") boolean dryRun,
+                                                                @AuthenticationPrincipal OAuth2User oauth2User) throws IOException {
+        return importResults(id, body, RaceImportService.Format.CSV, dryRun, oauth2User);
+    }
+
+    @PostMapping(value = "/{id}/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<RaceImportResultDTO> importResultsNdjson(@PathVariable Long id, InputStream body,
+                                                                   @RequestParam(defaultValue = "false") boolean dryRun,
+                                                                   @AuthenticationPrincipal OAuth2User oauth2User) throws IOException {
+        return importResults(id, body, RaceImportService.Format.NDJSON, dryRun, oauth2User);
+    }
+
+    private ResponseEntity<RaceImportResultDTO> importResults(Long id, InputStream body, RaceImportService.Format format,
+                                                              boolean dryRun, OAuth2User oauth2User) throws IOException {
+        if (oauth2User == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not authenticated");
+        }
+        long userStravaId;
+        try {
+            userStravaId = Long.parseLong(oauth2User.getName());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid Strava ID format for user importing into race {}: {}", id, oauth2User.getName());
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid Strava ID format for current user.");
+        }
+        // The organiser and segment ids are all the import needs; the participants are matched in SQL
+        Race race = raceRepository.findSummaryById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Race not found with ID: " + id));
+        if (race.getOrganiser() == null || !race.getOrganiser().getStravaId().equals(userStravaId)) {
+            logger.warn("User {} attempted to import results into race {} not owned by them.", userStravaId, id);
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Only the organiser can import results into this race.");
+        }
+        return ResponseEntity.ok(raceImportService.importResults(race, body, format, dryRun));
+    }
+
+    private RaceResponseDTO raceDetailView(Long id, OAuth2User oauth2User) {
+        Optional<RaceResponseDTO> snapshot = raceFinalizationService.findSnapshot(id);
+        if (snapshot.isPresent()) {
+            RaceResponseDTO finalResults = snapshot.get();
+            boolean viewerIsOrganiser = oauth2User != null && finalResults.getOrganiser() != null &&
+                    String.valueOf(finalResults.getOrganiser().getStravaId()).equals(oauth2User.getName());
+            // The organiser falls through to the live view, which also carries the race password
+            if (!viewerIsOrganiser) {
+                return finalResults;
+            }
+        }
+
         Optional<Race> raceOpt = raceRepository.findById(id);
         if (!raceOpt.isPresent()) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Race not found with ID: " + id);
@@ -178,11 +430,8 @@ public class RaceApiController {
         Race race = raceOpt.get();
         Hibernate.initialize(race.getOrganiser());
         Hibernate.initialize(race.getParticipants());
-        race.getParticipants().forEach(p -> {
-            Hibernate.initialize(p.getUser());
-            Hibernate.initialize(p.getSegmentResults());
-        });
-        return ResponseEntity.ok(convertToRaceResponseDTO(race, true, oauth2User));
+        participantRepository.fetchSegmentResultsByRaceId(race.getId()); // One query for every participant; users come with findById's entity graph
+        return raceDtoConverter.convertToRaceResponseDTO(race, true, oauth2User);
     }
 
 
@@ -254,18 +503,18 @@ public class RaceApiController {
             logger.error("Error parsing dates for race update {}: {}", id, e.getMessage());
             return ResponseEntity.badRequest().body("Invalid date format. Please use ISO 8601 format (e.g., yyyy-MM-ddTHH:mm:ss.SSSZ)");
         }
-        raceToUpdate.setSegmentIds(raceUpdateDTO.getSegmentIds());
+        raceToUpdate.setSegmentIds(toSegmentIdArray(raceUpdateDTO.getSegmentIds()));
 
         try {
             Race updatedRace = raceRepository.save(raceToUpdate);
+            raceFinalizationService.invalidate(updatedRace.getId());
+            cacheInvalidationBus.raceChanged(updatedRace.getId());
             logger.info("Race with ID: {} updated successfully by user {}.", updatedRace.getId(), userStravaId);
+            stravaService.fetchSegmentGeometry(oauth2User, updatedRace.getSegmentIds()); // Fetched after commit
             Hibernate.initialize(updatedRace.getOrganiser());
             Hibernate.initialize(updatedRace.getParticipants());
-            updatedRace.getParticipants().forEach(p -> {
-                Hibernate.initialize(p.getUser());
-                Hibernate.initialize(p.getSegmentResults());
-            });
-            return ResponseEntity.ok(convertToRaceResponseDTO(updatedRace, true, oauth2User));
+            participantRepository.fetchSegmentResultsByRaceId(updatedRace.getId()); // One query for every participant; users come with findById's entity graph
+            return ResponseEntity.ok(raceDtoConverter.convertToRaceResponseDTO(updatedRace, true, oauth2User));
         } catch (Exception e) {
             logger.error("Error updating race {}: {}", id, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to update race due to server error");
@@ -287,27 +536,30 @@ public class RaceApiController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid user ID format.");
         }
 
-        Optional<Race> raceOpt = raceRepository.findById(id);
-        if (!raceOpt.isPresent()) {
+        Optional<Long> organiserIdOpt = raceRepository.findOrganiserStravaIdById(id);
+        if (!organiserIdOpt.isPresent()) {
             logger.warn("Delete attempt for non-existent race ID: {}", id);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Race not found.");
         }
-        Race raceToDelete = raceOpt.get();
-        Hibernate.initialize(raceToDelete.getOrganiser()); // Ensure organizer is loaded
 
-        if (raceToDelete.getOrganiser() == null || !raceToDelete.getOrganiser().getStravaId().equals(userStravaId)) {
+        if (!organiserIdOpt.get().equals(userStravaId)) {
             logger.warn("User {} attempted to delete race {} not owned by them. Actual owner: {}",
-                    userStravaId, id, raceToDelete.getOrganiser() != null ? raceToDelete.getOrganiser().getStravaId() : "null");
+                    userStravaId, id, organiserIdOpt.get());
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("You are not authorized to delete this race.");
         }
 
         try {
-            // Rely on CascadeType.ALL and orphanRemoval=true on Race.participants
-            // and subsequently on Participant.segmentResults
-            raceRepository.delete(raceToDelete);
-            // entityManager.flush(); // Optional: If you have EntityManager injected and want to force flush for earlier error detection.
-
-            logger.info("Race with ID: {} deleted successfully by user {}.", id, userStravaId);
+            // Set-based deletes, children first. Nothing is loaded into the persistence context,
+            // so a race with thousands of participants is a handful of statements.
+            int resultsDeleted = segmentResultRepository.deleteByRaceId(id);
+            int participantsDeleted = participantRepository.deleteByRaceId(id);
+            raceRepository.deleteJoinRequestsByRaceId(id);
+            raceRepository.deleteRaceById(id);
+            raceFinalizationService.invalidate(id);
+            cacheInvalidationBus.raceChanged(id);
+
+            logger.info("Race with ID: {} deleted successfully by user {} ({} participants, {} segment results).",
+                    id, userStravaId, participantsDeleted, resultsDeleted);
             return ResponseEntity.noContent().build(); // HTTP 204 No Content
         } catch (Exception e) {
             // Log the full exception stack trace for better debugging
@@ -320,7 +572,7 @@ public class RaceApiController {
 
     @GetMapping("/participating")
     @Transactional(readOnly = true)
-    public ResponseEntity<List<RaceResponseDTO>> getParticipatingRaces(@AuthenticationPrincipal OAuth2User oauth2User) {
+    public ResponseEntity<List<RaceSummaryDTO>> getParticipatingRaces(@AuthenticationPrincipal OAuth2User oauth2User) {
         if (oauth2User == null) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not authenticated");
         }
@@ -333,17 +585,56 @@ public class RaceApiController {
         }
 
         List<Race> races = raceRepository.findRacesByParticipantStravaId(stravaId);
-        List<RaceResponseDTO> raceDTOs = races.stream()
-                .map(race -> {
-                    Hibernate.initialize(race.getOrganiser());
-                    Hibernate.initialize(race.getParticipants());
-                    race.getParticipants().forEach(p -> Hibernate.initialize(p.getUser()));
-                    return convertToRaceResponseDTO(race, false, oauth2User);
-                })
+        List<RaceSummaryDTO> raceDTOs = races.stream()
+                .map(raceDtoConverter::convertToRaceSummaryDTO)
                 .collect(Collectors.toList());
         return ResponseEntity.ok(raceDTOs);
     }
 
+    // The viewer's races with their own standing, read from the precomputed user_race_index
+    @GetMapping("/dashboard")
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<DashboardRaceDTO>> getDashboard(@AuthenticationPrincipal OAuth2User oauth2User) {
+        if (oauth2User == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not authenticated");
+        }
+        long stravaId;
+        try {
+            stravaId = Long.parseLong(oauth2User.getName());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid Strava ID format for current user in getDashboard: {}", oauth2User.getName());
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid Strava ID format for current user.");
+        }
+
+        Instant now = Instant.now();
+        List<DashboardRaceDTO> dashboard = userRaceIndexRepository.findDashboardByUserStravaId(stravaId).stream()
+                .map(row -> toDashboardRaceDTO(row.getEntry(), row.getRace(), now))
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(dashboard);
+    }
+
+    private static DashboardRaceDTO toDashboardRaceDTO(UserRaceIndexEntry entry, Race race, Instant now) {
+        boolean finished = race.getEndDate() != null && now.isAfter(race.getEndDate());
+        String status = finished ? "finished"
+                : race.getStartDate() != null && now.isBefore(race.getStartDate()) ? "upcoming" : "ongoing";
+        // Same rule as the race page: other riders' times stay hidden until the finish unless you organise the race
+        boolean rankVisible = finished || !race.isHideLeaderboardUntilFinish() || entry.isOrganiser();
+        return new DashboardRaceDTO(
+                race.getId(),
+                race.getRaceName(),
+                race.getStartDate() != null ? race.getStartDate().toString() : null,
+                race.getEndDate() != null ? race.getEndDate().toString() : null,
+                status,
+                entry.isOrganiser(),
+                entry.getParticipantId() != null,
+                entry.isSubmitted(),
+                rankVisible ? entry.getOverallRank() : null,
+                rankVisible ? entry.getRankedCount() : 0,
+                race.getParticipantCount(),
+                race.getSubmittedCount()
+        );
+    }
+
     @PostMapping("/{raceId}/join")
     @Transactional
     public ResponseEntity<?> joinRace(@PathVariable Long raceId,
@@ -369,17 +660,14 @@ public class RaceApiController {
         }
         User user = userOpt.get();
 
-        Optional<Race> raceOpt = raceRepository.findById(raceId);
+        Optional<Race> raceOpt = raceRepository.findSummaryById(raceId);
         if (!raceOpt.isPresent()) {
             logger.warn("Join attempt for non-existent race ID: {}", raceId);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Race not found.");
         }
         Race race = raceOpt.get();
-        Hibernate.initialize(race.getParticipants());
-
 
-        boolean alreadyParticipant = race.getParticipants().stream()
-                .anyMatch(p -> p.getUser().getStravaId().equals(userStravaId));
+        boolean alreadyParticipant = participantRepository.existsByRaceIdAndUserStravaId(raceId, userStravaId);
         if (alreadyParticipant) {
             logger.info("User {} already a participant in race {}.", userStravaId, raceId);
             return ResponseEntity.status(HttpStatus.CONFLICT).body("You are already a participant in this race.");
@@ -399,10 +687,13 @@ public class RaceApiController {
 
         try {
             Participant savedParticipant = participantRepository.save(newParticipant);
+            raceRepository.adjustParticipantCount(raceId, 1);
+            raceFinalizationService.invalidate(raceId);
+            cacheInvalidationBus.raceChanged(raceId);
             Hibernate.initialize(savedParticipant.getUser());
             Hibernate.initialize(savedParticipant.getSegmentResults());
             logger.info("User {} successfully joined race {}.", userStravaId, raceId);
-            return ResponseEntity.ok(convertToParticipantSummaryDTO(savedParticipant, race, oauth2User));
+            return ResponseEntity.ok(raceDtoConverter.convertToParticipantSummaryDTO(savedParticipant, race, oauth2User));
         } catch (Exception e) {
             logger.error("Error saving participant for race {}: {}", raceId, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Could not join race due to a server error.");
@@ -428,24 +719,19 @@ public class RaceApiController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid user ID format.");
         }
 
-        Optional<Race> raceOpt = raceRepository.findById(raceId);
-        if (!raceOpt.isPresent()) {
+        Optional<Long> organiserIdOpt = raceRepository.findOrganiserStravaIdById(raceId);
+        if (!organiserIdOpt.isPresent()) {
             logger.warn("Attempt to access participant {} from non-existent race ID: {}", participantId, raceId);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Race not found.");
         }
-        Race race = raceOpt.get();
-        Hibernate.initialize(race.getOrganiser());
-
 
+        // User and race stay uninitialized proxies: only their ids are needed below
         Optional<Participant> participantOpt = participantRepository.findById(participantId);
         if (!participantOpt.isPresent()) {
             logger.warn("Attempt to delete non-existent participant ID: {} from race {}", participantId, raceId);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Participant not found.");
         }
         Participant participantToDelete = participantOpt.get();
-        Hibernate.initialize(participantToDelete.getUser());
-        Hibernate.initialize(participantToDelete.getRace());
-        Hibernate.initialize(participantToDelete.getSegmentResults());
 
         if (participantToDelete.getRace() == null || !participantToDelete.getRace().getId().equals(raceId)) {
             logger.warn("Participant {} (User Strava ID: {}) is not part of race {}. Actual race ID: {}",
@@ -456,8 +742,7 @@ public class RaceApiController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Participant does not belong to this race.");
         }
 
-        boolean isRequesterOrganiser = race.getOrganiser() != null &&
-                race.getOrganiser().getStravaId().equals(requesterStravaId);
+        boolean isRequesterOrganiser = organiserIdOpt.get().equals(requesterStravaId);
 
         boolean isDeletingSelf = participantToDelete.getUser() != null &&
                 participantToDelete.getUser().getStravaId().equals(requesterStravaId);
@@ -478,11 +763,14 @@ public class RaceApiController {
                     participantToDelete.getUser() != null ? participantToDelete.getUser().getStravaId() : "N/A",
                     raceId);
 
-            if (Hibernate.isInitialized(race.getParticipants())) {
-                race.getParticipants().remove(participantToDelete);
+            segmentResultRepository.deleteByParticipantId(participantId);
+            participantRepository.deleteParticipantById(participantId);
+            raceRepository.adjustParticipantCount(raceId, -1);
+            if (participantToDelete.isSubmittedRide()) {
+                raceRepository.adjustSubmittedCount(raceId, -1);
             }
-            participantRepository.delete(participantToDelete);
-            entityManager.flush();
+            raceFinalizationService.invalidate(raceId);
+            cacheInvalidationBus.raceChanged(raceId);
 
             logger.info("Participant ID: {} successfully deleted from race ID: {} by requester (Strava ID: {}).",
                     participantId, raceId, requesterStravaId);
@@ -541,132 +829,50 @@ public class RaceApiController {
                     return new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not a participant in this race.");
                 });
 
-        stravaService.processAndSaveActivityResults(principal, raceId, request.getActivityId());
+        // Parent span for the submit stages; the commit span follows it once this @Transactional method returns
+        Observation.createNotStarted("matesrace.submit", observationRegistry)
+                .contextualName("submit activity")
+                .highCardinalityKeyValue("race.id", String.valueOf(raceId))
+                .highCardinalityKeyValue("activity.id", String.valueOf(request.getActivityId()))
+                .observe(() -> stravaService.processAndSaveActivityResults(principal, raceId, request.getActivityId()));
         return ResponseEntity.ok().build();
     }
 
-    private UserSummaryDTO convertToUserSummaryDTO(User user) {
-        if (user == null) {
-            return null;
-        }
-        return new UserSummaryDTO(
-                user.getStravaId(),
-                user.getDisplayName(),
-                user.getUserStravaFirstName(),
-                user.getUserStravaLastName(),
-                user.getUserStravaPic(),
-                user.getUserSex()
-        );
-    }
-
-    private ParticipantSummaryDTO convertToParticipantSummaryDTO(Participant participant, Race raceContext, OAuth2User currentUserPrincipal) {
-        if (participant == null) {
-            return null;
-        }
-        if (!Hibernate.isInitialized(participant.getUser())) {
-            Hibernate.initialize(participant.getUser());
-        }
-        if (!Hibernate.isInitialized(participant.getSegmentResults())) {
-            Hibernate.initialize(participant.getSegmentResults());
+    // GPX or FIT upload instead of a Strava activity. Not @Transactional: the body is decoded before any connection is taken.
+    @PostMapping("/{raceId}/submit-track")
+    public ResponseEntity<TrackSubmissionResultDTO> submitTrack(
+            @PathVariable Long raceId,
+            InputStream body,
+            @AuthenticationPrincipal OAuth2User principal) throws IOException {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-
-        List<ParticipantSegmentResultDTO> segmentResultDTOs = new ArrayList<>();
-        boolean raceFinished = raceContext.getEndDate() != null && Instant.now().isAfter(raceContext.getEndDate());
-        boolean isOrganiser = false;
-        long currentUserId = -1;
-
-        if (currentUserPrincipal != null) {
-            try {
-                currentUserId = Long.parseLong(currentUserPrincipal.getName());
-            } catch (NumberFormatException e) {
-                logger.warn("Could not parse current user ID from principal in convertToParticipantSummaryDTO: {}", currentUserPrincipal.getName());
-            }
-            if (raceContext.getOrganiser() != null && !Hibernate.isInitialized(raceContext.getOrganiser())) {
-                Hibernate.initialize(raceContext.getOrganiser());
-            }
-            isOrganiser = raceContext.getOrganiser() != null && raceContext.getOrganiser().getStravaId().equals(currentUserId);
+        long userStravaId;
+        try {
+            userStravaId = Long.parseLong(principal.getName());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid Strava ID format for user submitting a track: {}", principal.getName());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-
-        boolean showTimesForThisParticipant = isOrganiser || raceFinished || !raceContext.isHideLeaderboardUntilFinish() ||
-                (participant.getUser() != null && participant.getUser().getStravaId().equals(currentUserId));
-
-        if (participant.getSegmentResults() != null) {
-            segmentResultDTOs = participant.getSegmentResults().stream()
-                    .map(psr -> new ParticipantSegmentResultDTO(
-                            psr.getSegmentId(),
-                            psr.getSegmentName(),
-                            showTimesForThisParticipant ? psr.getElapsedTimeSeconds() : null))
-                    .collect(Collectors.toList());
+        if (participantRepository.findByRaceIdAndUserStravaId(raceId, userStravaId).isEmpty()) {
+            logger.warn("User {} not a participant in race {} tried to submit a track.", userStravaId, raceId);
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not a participant in this race.");
         }
 
-        return new ParticipantSummaryDTO(
-                participant.getId(),
-                convertToUserSummaryDTO(participant.getUser()),
-                participant.isSubmittedRide(),
-                participant.getSubmittedActivityId(),
-                segmentResultDTOs
-        );
+        TrackSubmissionResultDTO result = Observation.createNotStarted("matesrace.submit", observationRegistry)
+                .contextualName("submit track")
+                .highCardinalityKeyValue("race.id", String.valueOf(raceId))
+                .observeChecked(() -> {
+                    TrackPoints track = trackSubmissionService.readTrack(body);
+                    return trackSubmissionService.submitTrack(userStravaId, raceId, track);
+                });
+        return ResponseEntity.ok(result);
     }
 
-    private RaceResponseDTO convertToRaceResponseDTO(Race race, boolean includeParticipantsDetails, OAuth2User currentUserPrincipal) {
-        if (race == null) {
-            return null;
-        }
-        if(!Hibernate.isInitialized(race.getOrganiser())) {
-            Hibernate.initialize(race.getOrganiser());
-        }
-
-        List<ParticipantSummaryDTO> participantDTOs = Collections.emptyList();
-        int participantCount = 0;
-
-        if (Hibernate.isInitialized(race.getParticipants()) && race.getParticipants() != null) {
-            participantCount = race.getParticipants().size();
-            if (includeParticipantsDetails) {
-                participantDTOs = race.getParticipants().stream()
-                        .map(participant -> convertToParticipantSummaryDTO(participant, race, currentUserPrincipal))
-                        .collect(Collectors.toList());
-            }
-        } else if (race.getId() != null) {
-            // This is a fallback if participants are not initialized,
-            // which shouldn't happen with proper EntityGraph usage or initialization.
-            Integer countFromRepo = raceRepository.getParticipantCountForRace(race.getId());
-            participantCount = (countFromRepo != null) ? countFromRepo : 0;
-            logger.warn("Race participants collection was not initialized for race ID: {}. Participant count fetched separately.", race.getId());
-            if (includeParticipantsDetails) {
-                logger.warn("Participant details requested but collection not initialized for race ID: {}. Details will be missing.", race.getId());
-            }
-        }
-        String racePassword = null;
-
-        // Determine if the current user is the organizer and set the password
-        if (currentUserPrincipal != null && race.getOrganiser() != null) {
-            long currentUserId = -1;
-            try {
-                currentUserId = Long.parseLong(currentUserPrincipal.getName());
-            } catch (NumberFormatException e) {
-                logger.warn("Could not parse current user ID from principal in convertToRaceResponseDTO: {}", currentUserPrincipal.getName());
-            }
-            // Ensure organiser's Strava ID is not null before comparing
-            if (race.getOrganiser().getStravaId() != null && race.getOrganiser().getStravaId().equals(currentUserId)) {
-                racePassword = race.getPassword(); // Assign password if organizer
-            }
-        }
-
-        return new RaceResponseDTO(
-                race.getId(),
-                race.getRaceName(),
-                race.getRaceInfo(),
-                race.getStartDate() != null ? race.getStartDate().toString() : null,
-                race.getEndDate() != null ? race.getEndDate().toString() : null,
-                race.getSegmentIds() != null ? new ArrayList<>(race.getSegmentIds()) : new ArrayList<>(),
-                convertToUserSummaryDTO(race.getOrganiser()),
-                race.isPrivate(),
-                race.isHideLeaderboardUntilFinish(),
-                race.isUseSexCategories(),
-                includeParticipantsDetails ? participantDTOs : Collections.emptyList(), // Ensure it's empty list if not included
-                participantCount,
-                racePassword
-        );
-
+    private static long[] toSegmentIdArray(List<Long> segmentIds) {
+        return segmentIds.stream()
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .toArray();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package com.matesRace.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One card on the "my races" dashboard: the race plus the viewer's own standing in it
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardRaceDTO {
+    private Long raceId;
+    private String raceName;
+    private String startDate;
+    private String endDate;
+    private String status; // "upcoming", "ongoing" or "finished"
+    private boolean organiser;
+    private boolean participant;
+    private boolean submitted;
+    private Integer rank; // Null while the viewer has no complete total, or while the leaderboard is hidden from them
+    private int rankedCount;
+    private int participantCount;
+    private int submittedCount;
+}
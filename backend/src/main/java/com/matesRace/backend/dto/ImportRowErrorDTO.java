@@ -0,0 +1,13 @@
+package com.matesRace.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRowErrorDTO {
+    private int line; // 1-based line in the uploaded file; for CSV the header is line 1
+    private String message;
+}
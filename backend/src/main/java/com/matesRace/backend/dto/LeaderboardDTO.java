@@ -0,0 +1,18 @@
+package com.matesRace.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardDTO {
+    private Long raceId;
+    private boolean useSexCategories;
+    private List<LeaderboardEntryDTO> overall;
+    private Map<String, List<LeaderboardEntryDTO>> categories; // "M", "F", "other"; empty unless useSexCategories
+}
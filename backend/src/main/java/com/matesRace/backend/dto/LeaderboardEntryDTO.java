@@ -0,0 +1,15 @@
+package com.matesRace.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardEntryDTO {
+    private int rank;
+    private Long participantId;
+    private UserSummaryDTO user;
+    private int totalTimeSeconds;
+}
@@ -0,0 +1,16 @@
+package com.matesRace.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Just enough of the organiser to show and search by name in race lists
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrganiserSummaryDTO {
+    private Long stravaId;
+    private String displayName;
+    private String userStravaFirstName;
+    private String userStravaLastName;
+}
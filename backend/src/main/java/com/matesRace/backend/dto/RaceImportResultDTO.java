@@ -0,0 +1,21 @@
+package com.matesRace.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Outcome of a bulk import: valid rows are written, rows with errors are skipped and listed
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RaceImportResultDTO {
+    private int rowsRead;
+    private int participantsCreated;
+    private int participantsUpdated; // Existing participants whose results were replaced
+    private int segmentResultsWritten;
+    private boolean dryRun; // Validated and counted, then rolled back
+    private int errorCount;
+    private List<ImportRowErrorDTO> errors; // The first errors in file order, at most matesrace.races.import.max-reported-errors
+}
@@ -22,5 +22,6 @@ public class RaceResponseDTO {
     private boolean useSexCategories;
     private List<ParticipantSummaryDTO> participants; // Can be null for list views
     private int participantCount;
+    private int submittedCount;
     private String password;
 }
\ No newline at end of file
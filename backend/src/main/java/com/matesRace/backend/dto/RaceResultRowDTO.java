@@ -0,0 +1,21 @@
+package com.matesRace.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One participant in a results export (a CSV row or an NDJSON line), ranked like the leaderboard
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RaceResultRowDTO {
+    private Integer rank; // Null unless the rider has a visible time on every race segment
+    private Long participantId;
+    private UserSummaryDTO user;
+    private boolean submittedRide;
+    private Long submittedActivityId;
+    private Integer totalTimeSeconds;
+    private List<ParticipantSegmentResultDTO> segmentResults; // In race segment order; times null while hidden
+}
@@ -0,0 +1,17 @@
+package com.matesRace.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One page of GET /api/races/search; pass nextCursor back as "after" for the following page
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RaceSearchPageDTO {
+    private List<RaceSummaryDTO> races;
+    private String correctedQuery; // Set when nothing matched as typed and these are the results for the corrected spelling
+    private String nextCursor; // Null on the last page
+}
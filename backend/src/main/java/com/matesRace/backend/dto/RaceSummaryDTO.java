@@ -0,0 +1,22 @@
+package com.matesRace.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// List-view shape of a race: no segment ids, participants, description or password
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RaceSummaryDTO {
+    private Long id;
+    private String raceName;
+    private String startDate;
+    private String endDate;
+    private OrganiserSummaryDTO organiser;
+    private boolean isPrivate;
+    private boolean hideLeaderboardUntilFinish;
+    private boolean useSexCategories;
+    private int participantCount;
+    private int submittedCount;
+}
@@ -0,0 +1,20 @@
+package com.matesRace.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+// What an uploaded GPX/FIT track was scored as
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrackSubmissionResultDTO {
+    private int trackPoints;
+    private Instant startTime;
+    private Instant endTime;
+    private List<ParticipantSegmentResultDTO> segmentResults;
+    private List<Long> segmentsWithoutGeometry; // Race segments not in the local catalogue yet, so not scored
+}
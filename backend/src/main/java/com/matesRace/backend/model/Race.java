@@ -4,6 +4,10 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.Instant;
 import java.util.ArrayList;
@@ -16,6 +20,8 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Cacheable // Core fields and the inline segment ids; the participant collections are not cached
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "races")
 @Table(name = "races")
 public class Race {
 
@@ -35,10 +41,10 @@ public class Race {
     @Column(nullable = false)
     private Instant endDate;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "race_segment_ids", joinColumns = @JoinColumn(name = "race_id"))
-    @Column(name = "segment_id", nullable = false)
-    private List<Long> segmentIds = new ArrayList<>();
+    // Stored inline as a Postgres bigint[] so loading a race needs no extra join or query
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "segment_ids", columnDefinition = "bigint[]")
+    private long[] segmentIds = new long[0];
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "organiser_strava_id", referencedColumnName = "strava_Id", nullable = false)
@@ -64,6 +70,18 @@ public class Race {
     )
     private Set<User> joinRequesters = new HashSet<>();
 
+    // Maintained only through RaceRepository's atomic adjust* updates, never by entity flushes
+    @Column(name = "participant_count", nullable = false, updatable = false, columnDefinition = "INTEGER DEFAULT 0")
+    private int participantCount = 0;
+
+    @Column(name = "submitted_count", nullable = false, updatable = false, columnDefinition = "INTEGER DEFAULT 0")
+    private int submittedCount = 0;
+
+    // Bumped by every RaceFinalizationService.invalidate, so a snapshot built concurrently is not saved.
+    // Not kept current in the second-level cache: read it through RaceRepository, not from a loaded Race.
+    @Column(name = "results_version", nullable = false, insertable = false, updatable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private long resultsVersion = 0;
+
     @OneToMany(mappedBy = "race", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<Participant> participants = new ArrayList<>();
 
@@ -0,0 +1,33 @@
+package com.matesRace.backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Frozen, gzip-compressed RaceResponseDTO for a race whose end date has passed.
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "race_result_snapshots")
+public class RaceResultSnapshot {
+
+    @Id
+    @Column(name = "race_id")
+    private Long raceId;
+
+    @Column(name = "organiser_strava_id", nullable = false)
+    private Long organiserStravaId;
+
+    @Column(nullable = false)
+    private Instant finalizedAt;
+
+    @Column(nullable = false)
+    private byte[] payload; // gzip(JSON of RaceResponseDTO), password stripped
+}
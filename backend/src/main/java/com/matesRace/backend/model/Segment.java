@@ -0,0 +1,47 @@
+package com.matesRace.backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Local catalogue of Strava segments used by races, so uploaded GPX/FIT tracks can be scored without Strava.
+// Gates come from the segment_efforts of activities submitted through Strava; the route polyline is fetched
+// once per segment when a race using it is created or edited.
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "segments")
+public class Segment {
+
+    @Id
+    private Long id; // Strava segment id
+
+    private String name;
+
+    @Column(nullable = false)
+    private double startLat;
+
+    @Column(nullable = false)
+    private double startLng;
+
+    @Column(nullable = false)
+    private double endLat;
+
+    @Column(nullable = false)
+    private double endLng;
+
+    private Double distanceMeters;
+
+    @Column(columnDefinition = "text")
+    private String polyline; // Encoded polyline (Strava's map.polyline); null while only the gates are known
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+}
@@ -0,0 +1,62 @@
+package com.matesRace.backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * One row per (user, race) the user organises or rides in, with that user's standing in the race.
+ * Derived data: rebuilt per race by UserRaceIndexService after every change to the race, so the
+ * dashboard is a primary-key range scan instead of joins over participants and segment results.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(UserRaceIndexEntry.Key.class)
+@Table(name = "user_race_index", indexes = @Index(name = "idx_user_race_index_race", columnList = "race_id"))
+public class UserRaceIndexEntry {
+
+    @Id
+    @Column(name = "user_strava_id")
+    private Long userStravaId;
+
+    @Id
+    @Column(name = "race_id")
+    private Long raceId;
+
+    @Column(nullable = false)
+    private boolean organiser;
+
+    private Long participantId; // Null when the user only organises the race
+
+    @Column(nullable = false)
+    private boolean submitted;
+
+    private Integer totalTimeSeconds; // Null until there is a time on every race segment
+
+    private Integer overallRank; // Position among riders with a complete total, fastest first
+
+    @Column(nullable = false)
+    private int rankedCount;
+
+    @Column(nullable = false)
+    private Instant refreshedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userStravaId;
+        private Long raceId;
+    }
+}
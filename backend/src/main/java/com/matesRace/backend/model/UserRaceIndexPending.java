@@ -0,0 +1,29 @@
+package com.matesRace.backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A race whose user_race_index rows are out of date. Inserted by UserRaceIndexService in the same
+ * transaction as the change to the race and deleted in the transaction that rebuilds the rows, so a
+ * refresh survives a crash between the two. Mapped only so ddl-auto creates the table.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "user_race_index_pending")
+public class UserRaceIndexPending {
+
+    @Id
+    @Column(name = "race_id")
+    private Long raceId;
+
+    @Column(nullable = false, columnDefinition = "TIMESTAMP WITH TIME ZONE DEFAULT now()")
+    private Instant markedAt;
+}
@@ -1,13 +1,44 @@
 package com.matesRace.backend.repository;
 
 import com.matesRace.backend.model.Participant;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List; // Added import
 import java.util.Optional;
 
 public interface ParticipantRepository extends JpaRepository<Participant, Long> {
     Optional<Participant> findByRaceIdAndUserStravaId(Long raceId, Long userStravaId);
 
+    boolean existsByRaceIdAndUserStravaId(Long raceId, Long userStravaId);
+
     // Add this method:
     List<Participant> findByRaceId(Long raceId);
+
+    // Initializes segmentResults on every participant of the race already in the persistence context, in one query
+    @Query("SELECT DISTINCT p FROM Participant p LEFT JOIN FETCH p.segmentResults WHERE p.race.id = :raceId")
+    List<Participant> fetchSegmentResultsByRaceId(@Param("raceId") Long raceId);
+
+    @Query("SELECT DISTINCT p FROM Participant p LEFT JOIN FETCH p.segmentResults WHERE p.race.id IN :raceIds")
+    List<Participant> fetchSegmentResultsByRaceIdIn(@Param("raceIds") Collection<Long> raceIds);
+
+    @Modifying
+    @Query("DELETE FROM Participant p WHERE p.id = :participantId")
+    int deleteParticipantById(@Param("participantId") Long participantId);
+
+    @Modifying
+    @Query("DELETE FROM Participant p WHERE p.race.id = :raceId")
+    int deleteByRaceId(@Param("raceId") Long raceId);
+
+    // Flips submitted_ride at most once: returns 1 only for the submission that changed it, so two concurrent
+    // first submissions still count once (the second waits on the row lock and then matches no row)
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "participants"))
+    @Query(value = "UPDATE participants SET submitted_ride = true WHERE id = :participantId AND submitted_ride = false", nativeQuery = true)
+    int markSubmitted(@Param("participantId") Long participantId);
 }
\ No newline at end of file
@@ -2,11 +2,23 @@ package com.matesRace.backend.repository;
 
 import com.matesRace.backend.model.ParticipantSegmentResult; // Assuming singular class name
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 
 public interface ParticipantSegmentResultRepository extends JpaRepository<ParticipantSegmentResult, Long> {
     List<ParticipantSegmentResult> findByParticipantId(Long participantId); // To find all for deletion
-    void deleteByParticipantId(Long participantId);
+
+    // Bulk deletes: a derived deleteBy would load and remove every row one at a time
+    @Modifying
+    @Query("DELETE FROM ParticipantSegmentResult psr WHERE psr.participant.id = :participantId")
+    int deleteByParticipantId(@Param("participantId") Long participantId);
+
+    @Modifying
+    @Query("DELETE FROM ParticipantSegmentResult psr WHERE psr.participant.id IN " +
+            "(SELECT p.id FROM Participant p WHERE p.race.id = :raceId)")
+    int deleteByRaceId(@Param("raceId") Long raceId);
 }
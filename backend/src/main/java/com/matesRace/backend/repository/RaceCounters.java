@@ -0,0 +1,10 @@
+package com.matesRace.backend.repository;
+
+public interface RaceCounters {
+
+    // races.participant_count / submitted_count += delta. Only this race is evicted from the second-level cache,
+    // rather than the whole races region a bulk update would clear. Must run inside the caller's transaction.
+    int adjustParticipantCount(Long raceId, int delta);
+
+    int adjustSubmittedCount(Long raceId, int delta);
+}
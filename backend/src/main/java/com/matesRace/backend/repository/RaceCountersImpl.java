@@ -0,0 +1,50 @@
+package com.matesRace.backend.repository;
+
+import com.matesRace.backend.model.Race;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class RaceCountersImpl implements RaceCounters {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int adjustParticipantCount(Long raceId, int delta) {
+        return adjust("UPDATE races SET participant_count = participant_count + :delta WHERE id = :raceId", raceId, delta);
+    }
+
+    @Override
+    public int adjustSubmittedCount(Long raceId, int delta) {
+        return adjust("UPDATE races SET submitted_count = submitted_count + :delta WHERE id = :raceId", raceId, delta);
+    }
+
+    private int adjust(String sql, Long raceId, int delta) {
+        // races is the table written, so Hibernate's bulk cleanup sees it (and drops the cached races region)
+        int updated = entityManager.createNativeQuery(sql)
+                .setParameter("delta", delta)
+                .setParameter("raceId", raceId)
+                .setHint(HibernateHints.HINT_NATIVE_SPACES, "races")
+                .executeUpdate();
+        evictAfterCompletion(raceId);
+        return updated;
+    }
+
+    // Evicted now and again once the transaction ends, since a concurrent read may re-cache the old counts in between
+    private void evictAfterCompletion(Long raceId) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        cache.evict(Race.class, raceId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(Race.class, raceId);
+                }
+            });
+        }
+    }
+}
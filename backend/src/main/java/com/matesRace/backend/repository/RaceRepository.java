@@ -1,27 +1,72 @@
 package com.matesRace.backend.repository;
 
 import com.matesRace.backend.model.Race;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface RaceRepository extends JpaRepository<Race, Long> {
+public interface RaceRepository extends JpaRepository<Race, Long>, RaceSummaryLookup, RaceSearch, RaceCounters {
 
     // EntityGraph to fetch related entities for detailed view of a single race by ID
     @EntityGraph(attributePaths = {"organiser", "participants", "participants.user"})
     @Override // Good practice to add @Override if overriding a method from JpaRepository
     Optional<Race> findById(Long id);
 
+    // The same graph for several races in one query (batch endpoint)
+    @EntityGraph(attributePaths = {"organiser", "participants", "participants.user"})
+    List<Race> findWithParticipantsByIdIn(Collection<Long> ids);
+
+    // List view: organiser only, the participant count comes from the race row
+    @Query("SELECT r FROM Race r JOIN FETCH r.organiser")
+    List<Race> findAllWithOrganiser();
+
+    // A page of search hits; the caller restores the search order
+    @Query("SELECT r FROM Race r JOIN FETCH r.organiser WHERE r.id IN :ids")
+    List<Race> findAllWithOrganiserByIdIn(@Param("ids") Collection<Long> ids);
+
     // Fetch races where the user is a participant
-    // Corrected: Added FETCH for r.participants
-    @Query("SELECT DISTINCT r FROM Race r LEFT JOIN FETCH r.organiser LEFT JOIN FETCH r.participants p LEFT JOIN FETCH p.user WHERE p.user.stravaId = :stravaId")
+    @Query("SELECT r FROM Race r JOIN FETCH r.organiser WHERE EXISTS " +
+            "(SELECT 1 FROM Participant p WHERE p.race = r AND p.user.stravaId = :stravaId)")
     List<Race> findRacesByParticipantStravaId(@Param("stravaId") Long stravaId);
 
-    // Query to get participant count for a specific race
-    @Query("SELECT COUNT(p) FROM Participant p WHERE p.race.id = :raceId")
-    Integer getParticipantCountForRace(@Param("raceId") Long raceId);
-}
\ No newline at end of file
+    // Ownership check without loading the race or its participants
+    @Query("SELECT r.organiser.stravaId FROM Race r WHERE r.id = :raceId")
+    Optional<Long> findOrganiserStravaIdById(@Param("raceId") Long raceId);
+
+    // Declare the touched table, otherwise Hibernate evicts every second-level cache region after a native update
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "race_join_requests"))
+    @Query(value = "DELETE FROM race_join_requests WHERE race_id = :raceId", nativeQuery = true)
+    int deleteJoinRequestsByRaceId(@Param("raceId") Long raceId);
+
+    @Modifying
+    @Query("DELETE FROM Race r WHERE r.id = :raceId")
+    int deleteRaceById(@Param("raceId") Long raceId);
+
+    // races.results_version: bumped whenever results change, checked under a row lock before a snapshot is saved.
+    // Declares races, the table it writes; the version itself is only ever read with the query below, never from the cache.
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "races"))
+    @Query(value = "UPDATE races SET results_version = results_version + 1 WHERE id = :raceId", nativeQuery = true)
+    int bumpResultsVersion(@Param("raceId") Long raceId);
+
+    @Query(value = "SELECT results_version FROM races WHERE id = :raceId", nativeQuery = true)
+    Optional<Long> findResultsVersionById(@Param("raceId") Long raceId);
+
+    @Query(value = "SELECT results_version FROM races WHERE id = :raceId FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockResultsVersionById(@Param("raceId") Long raceId);
+
+    // Races that have ended but have not been frozen into a RaceResultSnapshot yet
+    @Query("SELECT r.id FROM Race r WHERE r.endDate < :now AND NOT EXISTS (SELECT 1 FROM RaceResultSnapshot s WHERE s.raceId = r.id)")
+    List<Long> findFinishedRaceIdsWithoutSnapshot(@Param("now") Instant now);
+}
@@ -0,0 +1,14 @@
+package com.matesRace.backend.repository;
+
+import com.matesRace.backend.model.RaceResultSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface RaceResultSnapshotRepository extends JpaRepository<RaceResultSnapshot, Long> {
+
+    @Modifying
+    @Query("DELETE FROM RaceResultSnapshot s WHERE s.raceId = :raceId")
+    int deleteByRaceId(@Param("raceId") Long raceId);
+}
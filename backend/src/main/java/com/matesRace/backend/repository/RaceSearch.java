@@ -0,0 +1,14 @@
+package com.matesRace.backend.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface RaceSearch {
+
+    // Ids of races whose name or info contain the words as prefixes (full text), or whose organiser's name contains
+    // the text (trigram), newest start first. Pass the last race of the previous page to continue after it.
+    List<Long> searchRaceIds(String text, Instant afterStartDate, Long afterId, int limit);
+
+    // The search words with each one replaced by the closest known word (trigram similarity), for misspelt searches
+    String correctSpelling(String text);
+}
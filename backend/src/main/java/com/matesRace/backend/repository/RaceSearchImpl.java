@@ -0,0 +1,127 @@
+package com.matesRace.backend.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Native search queries. Every predicate is served by an index SchemaMaintenanceRunner creates
+ * (GIN on races.search_vector, trigram GIN on the organiser name expression and on the
+ * race_search_words vocabulary, and (start_date DESC, id DESC) for the keyset order), so the
+ * expressions must stay identical to those.
+ * <p>
+ * Postgres can't estimate how many rows a prefix tsquery matches, so left to itself the planner
+ * guesses between walking the start_date index and a bitmap scan of the GIN index, and a wrong guess
+ * costs hundreds of milliseconds. The query makes the choice itself: it first filters the most recent
+ * {@value #RECENT_WINDOW} races in keyset order, which fills the page for common words, and only when
+ * that falls short does it collect every match through the indexes, which is cheap for rare words.
+ */
+public class RaceSearchImpl implements RaceSearch {
+
+    private static final int RECENT_WINDOW = 1000;
+
+    // The organiser name expression of idx_users_name_trgm
+    private static final String ORGANISER_MATCH =
+            "(coalesce(u.display_name, '') || ' ' || coalesce(u.user_strava_first_name, '') || ' ' || coalesce(u.user_strava_last_name, '')) ILIKE :pattern";
+
+    // Organiser matches are joined in rather than collected up front, so a common name can't cut off any of them.
+    // In all_hits each half of the OR is its own branch, so both stay index scans (GIN, then trigram GIN joined
+    // through idx_races_organiser) instead of one filter over every race.
+    private static final String SEARCH_SQL = """
+            WITH recent AS MATERIALIZED (
+                SELECT id, start_date, search_vector, organiser_strava_id FROM races
+                WHERE %1$s
+                ORDER BY start_date DESC, id DESC
+                LIMIT %3$d
+            ), recent_hits AS MATERIALIZED (
+                SELECT id, start_date FROM recent
+                WHERE search_vector @@ to_tsquery('simple', :tsQuery)
+                   OR EXISTS (SELECT 1 FROM users u WHERE u.strava_id = recent.organiser_strava_id AND %2$s)
+                ORDER BY start_date DESC, id DESC
+                LIMIT :limit
+            ), all_hits AS MATERIALIZED (
+                SELECT id, start_date FROM races
+                WHERE search_vector @@ to_tsquery('simple', :tsQuery) AND %1$s
+                UNION
+                SELECT id, start_date FROM races
+                WHERE organiser_strava_id IN (SELECT u.strava_id FROM users u WHERE %2$s) AND %1$s
+            )
+            SELECT id FROM (
+                SELECT id, start_date FROM recent_hits WHERE (SELECT count(*) FROM recent_hits) = :limit
+                UNION ALL
+                (SELECT id, start_date FROM all_hits WHERE (SELECT count(*) FROM recent_hits) < :limit
+                 ORDER BY start_date DESC, id DESC LIMIT :limit)
+            ) page
+            ORDER BY start_date DESC, id DESC
+            """;
+
+    // Best vocabulary match per word above pg_trgm.similarity_threshold; words without one are kept as typed
+    private static final String CORRECT_SQL = """
+            SELECT coalesce((SELECT w.word FROM race_search_words w
+                             WHERE w.word % t.term
+                             ORDER BY similarity(w.word, t.term) DESC, length(w.word), w.word
+                             LIMIT 1), t.term)
+            FROM unnest(string_to_array(:terms, ' ')) WITH ORDINALITY AS t(term, ord)
+            ORDER BY t.ord
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Long> searchRaceIds(String text, Instant afterStartDate, Long afterId, int limit) {
+        boolean continuing = afterStartDate != null && afterId != null;
+        String keyset = continuing ? "(start_date, id) < (:afterStartDate, :afterId)" : "TRUE";
+        Query query = entityManager.createNativeQuery(SEARCH_SQL.formatted(keyset, ORGANISER_MATCH, RECENT_WINDOW), Long.class)
+                .setParameter("tsQuery", toPrefixTsQuery(text))
+                .setParameter("pattern", "%" + escapeLike(text) + "%")
+                .setParameter("limit", limit);
+        if (continuing) {
+            query.setParameter("afterStartDate", afterStartDate).setParameter("afterId", afterId);
+        }
+        @SuppressWarnings("unchecked")
+        List<Long> ids = query.getResultList();
+        return ids;
+    }
+
+    @Override
+    public String correctSpelling(String text) {
+        List<String> words = words(text);
+        if (words.isEmpty()) {
+            return text;
+        }
+        @SuppressWarnings("unchecked")
+        List<String> corrected = entityManager.createNativeQuery(CORRECT_SQL, String.class)
+                .setParameter("terms", String.join(" ", words))
+                .getResultList();
+        return String.join(" ", corrected);
+    }
+
+    // "spring clas" -> "spring:* & clas:*"; only letters and digits reach to_tsquery, so user input can't break its syntax
+    static String toPrefixTsQuery(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String word : words(text)) {
+            terms.add(word + ":*");
+        }
+        return String.join(" & ", terms);
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
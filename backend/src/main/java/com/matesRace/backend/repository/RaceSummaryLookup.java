@@ -0,0 +1,12 @@
+package com.matesRace.backend.repository;
+
+import com.matesRace.backend.model.Race;
+
+import java.util.Optional;
+
+public interface RaceSummaryLookup {
+
+    // Single race without the participant graph, for paths that only need the race's own fields.
+    // Served from the second-level cache when the race is cached.
+    Optional<Race> findSummaryById(Long id);
+}
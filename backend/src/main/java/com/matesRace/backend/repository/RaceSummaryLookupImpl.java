@@ -0,0 +1,19 @@
+package com.matesRace.backend.repository;
+
+import com.matesRace.backend.model.Race;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.Optional;
+
+public class RaceSummaryLookupImpl implements RaceSummaryLookup {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Race> findSummaryById(Long id) {
+        // EntityManager.find goes through the second-level cache; RaceRepository.findById's entity graph turns it into a query
+        return Optional.ofNullable(entityManager.find(Race.class, id));
+    }
+}
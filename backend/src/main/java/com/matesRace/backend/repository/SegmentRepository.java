@@ -0,0 +1,51 @@
+package com.matesRace.backend.repository;
+
+import com.matesRace.backend.model.Segment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface SegmentRepository extends JpaRepository<Segment, Long> {
+
+    // Insert or refresh the gates of one catalogue entry, keeping its polyline; concurrent submissions must not collide
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "segments"))
+    @Query(value = """
+            INSERT INTO segments (id, name, start_lat, start_lng, end_lat, end_lng, distance_meters, updated_at)
+            VALUES (:id, :name, :startLat, :startLng, :endLat, :endLng, :distanceMeters, :updatedAt)
+            ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, start_lat = EXCLUDED.start_lat,
+                start_lng = EXCLUDED.start_lng, end_lat = EXCLUDED.end_lat, end_lng = EXCLUDED.end_lng,
+                distance_meters = EXCLUDED.distance_meters, updated_at = EXCLUDED.updated_at
+            """, nativeQuery = true)
+    int upsertGates(@Param("id") long id, @Param("name") String name,
+                    @Param("startLat") double startLat, @Param("startLng") double startLng,
+                    @Param("endLat") double endLat, @Param("endLng") double endLng,
+                    @Param("distanceMeters") Double distanceMeters, @Param("updatedAt") Instant updatedAt);
+
+    // Full geometry from Strava's segment endpoint
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "segments"))
+    @Query(value = """
+            INSERT INTO segments (id, name, start_lat, start_lng, end_lat, end_lng, distance_meters, polyline, updated_at)
+            VALUES (:id, :name, :startLat, :startLng, :endLat, :endLng, :distanceMeters, :polyline, :updatedAt)
+            ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, start_lat = EXCLUDED.start_lat,
+                start_lng = EXCLUDED.start_lng, end_lat = EXCLUDED.end_lat, end_lng = EXCLUDED.end_lng,
+                distance_meters = EXCLUDED.distance_meters, polyline = EXCLUDED.polyline, updated_at = EXCLUDED.updated_at
+            """, nativeQuery = true)
+    int upsertGeometry(@Param("id") long id, @Param("name") String name,
+                       @Param("startLat") double startLat, @Param("startLng") double startLng,
+                       @Param("endLat") double endLat, @Param("endLng") double endLng,
+                       @Param("distanceMeters") Double distanceMeters, @Param("polyline") String polyline,
+                       @Param("updatedAt") Instant updatedAt);
+
+    @Query("SELECT s.id FROM Segment s WHERE s.id IN :ids AND s.polyline IS NOT NULL")
+    List<Long> findIdsWithPolylineByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,22 @@
+package com.matesRace.backend.repository;
+
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.model.UserRaceIndexEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface UserRaceIndexRepository extends JpaRepository<UserRaceIndexEntry, UserRaceIndexEntry.Key> {
+
+    interface DashboardRow {
+        UserRaceIndexEntry getEntry();
+        Race getRace();
+    }
+
+    // The user's dashboard in one statement: a primary-key range scan on the index plus the race rows
+    @Query("SELECT i AS entry, r AS race FROM UserRaceIndexEntry i JOIN Race r ON r.id = i.raceId " +
+            "WHERE i.userStravaId = :stravaId ORDER BY r.startDate DESC, r.id DESC")
+    List<DashboardRow> findDashboardByUserStravaId(@Param("stravaId") Long stravaId);
+}
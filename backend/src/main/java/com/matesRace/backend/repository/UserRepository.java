@@ -4,5 +4,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long>{
-    Optional<User> findByStravaId(Long stravaId);
+    // stravaId is the primary key, so go through findById: unlike a derived query it is served from the second-level cache
+    default Optional<User> findByStravaId(Long stravaId) {
+        return findById(stravaId);
+    }
 }
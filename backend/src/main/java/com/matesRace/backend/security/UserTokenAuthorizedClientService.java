@@ -0,0 +1,172 @@
+package com.matesRace.backend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.matesRace.backend.model.User;
+import com.matesRace.backend.service.CacheInvalidationBus;
+import com.matesRace.backend.service.CacheInvalidationEvent;
+import com.matesRace.backend.service.UserProfileSyncService.Profile;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Authorized-client store backed by the token columns on {@link User}, replacing Boot's
+ * in-memory default so tokens survive restarts and are shared by every node.
+ * <p>
+ * Lookups go through a bounded per-node cache keyed by principal name (the Strava id);
+ * entries are dropped whenever the user changes here or on another node
+ * (see {@link CacheInvalidationBus}).
+ */
+@Service
+public class UserTokenAuthorizedClientService implements OAuth2AuthorizedClientService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserTokenAuthorizedClientService.class);
+
+    private final ClientRegistrationRepository clientRegistrationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final Cache<String, OAuth2AuthorizedClient> clients;
+
+    public UserTokenAuthorizedClientService(ClientRegistrationRepository clientRegistrationRepository,
+                                            JdbcTemplate jdbcTemplate,
+                                            EntityManagerFactory entityManagerFactory,
+                                            CacheInvalidationBus cacheInvalidationBus,
+                                            @Value("${matesrace.oauth2.client-cache.maximum-size:10000}") long maximumSize,
+                                            @Value("${matesrace.oauth2.client-cache.expire-after-write:PT1H}") Duration expireAfterWrite) {
+        this.clientRegistrationRepository = clientRegistrationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.clients = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends OAuth2AuthorizedClient> T loadAuthorizedClient(String clientRegistrationId, String principalName) {
+        ClientRegistration registration = clientRegistrationRepository.findByRegistrationId(clientRegistrationId);
+        if (registration == null || principalName == null) {
+            return null;
+        }
+        OAuth2AuthorizedClient client = clients.get(principalName, key -> loadFromDatabase(registration, principalName));
+        if (client != null && !clientRegistrationId.equals(client.getClientRegistration().getRegistrationId())) {
+            return null; // The users table only holds tokens for a single registration
+        }
+        return (T) client;
+    }
+
+    private OAuth2AuthorizedClient loadFromDatabase(ClientRegistration registration, String principalName) {
+        Long stravaId;
+        try {
+            stravaId = Long.valueOf(principalName);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        List<OAuth2AuthorizedClient> rows = jdbcTemplate.query(
+                "SELECT user_strava_access, user_strava_refresh, user_token_expire FROM users WHERE strava_id = ?",
+                (rs, rowNum) -> {
+                    String access = rs.getString("user_strava_access");
+                    if (access == null) {
+                        return null;
+                    }
+                    Timestamp expire = rs.getTimestamp("user_token_expire");
+                    // Expiry is stored as a UTC LocalDateTime; the issue time was never kept
+                    Instant expiresAt = expire != null ? expire.toLocalDateTime().toInstant(ZoneOffset.UTC) : null;
+                    OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+                            access, null, expiresAt, registration.getScopes());
+                    String refresh = rs.getString("user_strava_refresh");
+                    OAuth2RefreshToken refreshToken = refresh != null ? new OAuth2RefreshToken(refresh, null) : null;
+                    return new OAuth2AuthorizedClient(registration, principalName, accessToken, refreshToken);
+                },
+                stravaId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    @Override
+    public void saveAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
+        String principalName = principal.getName();
+        Long stravaId = Long.valueOf(principalName);
+        OAuth2AccessToken accessToken = authorizedClient.getAccessToken();
+        OAuth2RefreshToken refreshToken = authorizedClient.getRefreshToken();
+        LocalDateTime expiresAt = accessToken.getExpiresAt() != null
+                ? LocalDateTime.ofInstant(accessToken.getExpiresAt(), ZoneOffset.UTC) : null;
+
+        // One statement per login: first-time users are created with their Strava profile, returning users
+        // only get new tokens (profile changes go through UserProfileSyncService). An existing refresh token
+        // is kept when the provider didn't send a new one.
+        Profile profile = principal.getPrincipal() instanceof OAuth2User oauth2User
+                ? Profile.fromStravaAttributes(oauth2User.getAttributes())
+                : new Profile(stravaId, null, null, null, null, null, null, null);
+        jdbcTemplate.update("""
+                INSERT INTO users (strava_id, display_name, user_strava_first_name, user_strava_last_name, user_strava_pic,
+                                   user_sex, user_city, user_state, user_country,
+                                   user_strava_access, user_strava_refresh, user_token_expire)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT (strava_id) DO UPDATE
+                SET user_strava_access = EXCLUDED.user_strava_access,
+                    user_strava_refresh = COALESCE(EXCLUDED.user_strava_refresh, users.user_strava_refresh),
+                    user_token_expire = EXCLUDED.user_token_expire
+                """,
+                stravaId, displayName(profile), profile.getFirstName(), profile.getLastName(), profile.getPicture(),
+                profile.getSex(), profile.getCity(), profile.getState(), profile.getCountry(),
+                accessToken.getTokenValue(), refreshToken != null ? refreshToken.getTokenValue() : null, expiresAt);
+        entityManagerFactory.getCache().evict(User.class, stravaId); // Written behind Hibernate's back
+        cacheInvalidationBus.userChanged(stravaId);
+        clients.put(principalName, authorizedClient);
+        logger.debug("Persisted authorized client for user {}.", stravaId);
+    }
+
+    private static String displayName(Profile profile) {
+        if (profile.getFirstName() == null && profile.getLastName() == null) {
+            return null;
+        }
+        return profile.getFirstName() + " " + profile.getLastName();
+    }
+
+    @Override
+    public void removeAuthorizedClient(String clientRegistrationId, String principalName) {
+        Long stravaId = Long.valueOf(principalName);
+        jdbcTemplate.update("""
+                UPDATE users SET user_strava_access = NULL, user_strava_refresh = NULL, user_token_expire = NULL
+                WHERE strava_id = ?
+                """, stravaId);
+        entityManagerFactory.getCache().evict(User.class, stravaId);
+        cacheInvalidationBus.userChanged(stravaId);
+        clients.invalidate(principalName);
+    }
+
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationEvent event) {
+        if (event.getEntityType() != CacheInvalidationEvent.EntityType.USER) {
+            return;
+        }
+        if (event.isAll()) {
+            clients.invalidateAll();
+        } else {
+            clients.invalidate(String.valueOf(event.getId()));
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.matesRace.backend.service;
+
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.model.User;
+import com.matesRace.backend.service.CacheInvalidationEvent.EntityType;
+import jakarta.persistence.EntityManagerFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Broadcasts race and user changes to the other backend nodes over Postgres LISTEN/NOTIFY,
+ * so their in-process caches (Hibernate second-level cache and anything listening for
+ * {@link CacheInvalidationEvent}) don't serve stale data.
+ * <p>
+ * Outgoing changes are queued after commit and sent every coalesce interval as one NOTIFY per
+ * batch, re-queued if the send fails; incoming notifications are de-duplicated per poll before being
+ * applied. NOTIFY is not queued for absent listeners, so each (re)connect starts by dropping the
+ * node's cached races and users.
+ */
+@Service
+public class CacheInvalidationBus implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    static final String CHANNEL = "matesrace_invalidation";
+    private static final int MAX_PAYLOAD_CHARS = 7000; // NOTIFY payloads must stay under 8000 bytes
+    private static final int POLL_TIMEOUT_MILLIS = 1000;
+    private static final long RECONNECT_DELAY_MILLIS = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserRaceIndexService userRaceIndexService;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Set<String> pendingKeys = ConcurrentHashMap.newKeySet();
+
+    @Value("${matesrace.cache.invalidation.enabled:true}")
+    private boolean enabled;
+
+    private volatile boolean running;
+    private volatile Connection listenConnection;
+    private Thread listenerThread;
+
+    public CacheInvalidationBus(JdbcTemplate jdbcTemplate,
+                                DataSourceProperties dataSourceProperties,
+                                EntityManagerFactory entityManagerFactory,
+                                ApplicationEventPublisher eventPublisher,
+                                UserRaceIndexService userRaceIndexService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.entityManagerFactory = entityManagerFactory;
+        this.eventPublisher = eventPublisher;
+        this.userRaceIndexService = userRaceIndexService;
+    }
+
+    public void raceChanged(Long raceId) {
+        if (raceId != null) {
+            userRaceIndexService.markPending(raceId); // In the caller's transaction, unlike the broadcast
+        }
+        changed(EntityType.RACE, raceId);
+    }
+
+    public void userChanged(Long stravaId) {
+        changed(EntityType.USER, stravaId);
+    }
+
+    private void changed(EntityType type, Long id) {
+        if (id == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Other nodes must not re-read before our transaction is visible
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(type, id);
+                }
+            });
+        } else {
+            enqueue(type, id);
+        }
+    }
+
+    private void enqueue(EntityType type, Long id) {
+        eventPublisher.publishEvent(new CacheInvalidationEvent(type, id, false));
+        if (enabled) {
+            pendingKeys.add(toKey(type, id));
+        }
+    }
+
+    // Sends everything queued since the last run; a burst of writes to one race becomes a single key
+    @Scheduled(fixedDelayString = "${matesrace.cache.invalidation.coalesce-millis:200}")
+    public void flushPending() {
+        if (pendingKeys.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(pendingKeys);
+        pendingKeys.removeAll(keys);
+
+        StringBuilder payload = new StringBuilder(nodeId).append('|');
+        int headerLength = payload.length();
+        List<String> batch = new ArrayList<>();
+        for (String key : keys) {
+            if (payload.length() + key.length() + 1 > MAX_PAYLOAD_CHARS) {
+                sendNotify(payload.toString(), batch);
+                payload.setLength(headerLength);
+                batch = new ArrayList<>();
+            }
+            if (payload.length() > headerLength) {
+                payload.append(',');
+            }
+            payload.append(key);
+            batch.add(key);
+        }
+        sendNotify(payload.toString(), batch);
+    }
+
+    // A batch that could not be sent goes back in the queue for the next run, so no node misses it
+    private void sendNotify(String payload, List<String> keys) {
+        try {
+            jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, CHANNEL, payload);
+        } catch (Exception e) {
+            pendingKeys.addAll(keys);
+            logger.warn("Failed to broadcast {} cache invalidation(s), retrying: {}", keys.size(), e.getMessage());
+        }
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                listenConnection = connection;
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                logger.info("Listening for cache invalidations on channel {} (node {}).", CHANNEL, nodeId);
+                clearAll(); // Whatever was sent while we weren't listening is lost
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null && notifications.length > 0) {
+                        applyRemote(notifications);
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Cache invalidation listener lost its connection, retrying in {} ms: {}", RECONNECT_DELAY_MILLIS, e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } finally {
+                listenConnection = null;
+            }
+        }
+    }
+
+    private void applyRemote(PGNotification[] notifications) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (PGNotification notification : notifications) {
+            String payload = notification.getParameter();
+            int separator = payload.indexOf('|');
+            if (separator < 0 || payload.substring(0, separator).equals(nodeId)) {
+                continue; // Malformed, or our own broadcast
+            }
+            for (String key : payload.substring(separator + 1).split(",")) {
+                if (!key.isEmpty()) {
+                    keys.add(key);
+                }
+            }
+        }
+        for (String key : keys) {
+            try {
+                EntityType type = key.charAt(0) == 'R' ? EntityType.RACE : EntityType.USER;
+                Long id = Long.valueOf(key.substring(2));
+                entityManagerFactory.getCache().evict(type == EntityType.RACE ? Race.class : User.class, id);
+                eventPublisher.publishEvent(new CacheInvalidationEvent(type, id, true));
+            } catch (RuntimeException e) {
+                logger.warn("Ignoring malformed cache invalidation key '{}': {}", key, e.getMessage());
+            }
+        }
+        if (!keys.isEmpty()) {
+            logger.debug("Applied {} cache invalidation(s) from other nodes.", keys.size());
+        }
+    }
+
+    // Drops every cached race and user, here and in the listeners; used when notifications may have been missed
+    private void clearAll() {
+        entityManagerFactory.getCache().evict(Race.class);
+        entityManagerFactory.getCache().evict(User.class);
+        eventPublisher.publishEvent(new CacheInvalidationEvent(EntityType.RACE, null, true));
+        eventPublisher.publishEvent(new CacheInvalidationEvent(EntityType.USER, null, true));
+    }
+
+    private static String toKey(EntityType type, Long id) {
+        return (type == EntityType.RACE ? "R:" : "U:") + id;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this::listenLoop, "cache-invalidation-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Connection connection = listenConnection;
+        if (connection != null) {
+            try {
+                connection.close(); // Unblocks getNotifications
+            } catch (SQLException e) {
+                logger.debug("Error closing cache invalidation listener connection: {}", e.getMessage());
+            }
+        }
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
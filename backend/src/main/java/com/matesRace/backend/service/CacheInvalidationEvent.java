@@ -0,0 +1,21 @@
+package com.matesRace.backend.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Published in-process whenever a race or user changed, on this node or (via LISTEN/NOTIFY) on another one.
+// A null id means any entity of the type may have changed: listeners drop everything they hold for it.
+@Data
+@AllArgsConstructor
+public class CacheInvalidationEvent {
+
+    public enum EntityType { RACE, USER }
+
+    private EntityType entityType;
+    private Long id;
+    private boolean remote; // true when the change was made by another backend node
+
+    public boolean isAll() {
+        return id == null;
+    }
+}
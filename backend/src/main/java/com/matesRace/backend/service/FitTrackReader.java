@@ -0,0 +1,196 @@
+package com.matesRace.backend.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Minimal decoder for Garmin FIT activity files: just enough of the protocol to walk every message,
+ * keeping the timestamp and position of {@code record} messages. Definitions are kept per local message
+ * type (at most 16), data is read field by field from a small buffer, so memory does not depend on the
+ * file size. Developer fields are skipped, the trailing CRC is not checked.
+ */
+final class FitTrackReader {
+
+    private static final int RECORD_MESSAGE = 20;
+    private static final int FIELD_POSITION_LAT = 0;
+    private static final int FIELD_POSITION_LONG = 1;
+    private static final int FIELD_TIMESTAMP = 253;
+    private static final long FIT_EPOCH_OFFSET = 631_065_600L; // 1989-12-31T00:00:00Z in Unix seconds
+    private static final long MIN_ABSOLUTE_TIMESTAMP = 0x10000000L; // Smaller values are device uptime, not dates
+    private static final int INVALID_SINT32 = 0x7FFFFFFF;
+    private static final long INVALID_UINT32 = 0xFFFFFFFFL;
+    private static final double SEMICIRCLES_TO_DEGREES = 180.0 / 2147483648.0;
+
+    private FitTrackReader() {
+    }
+
+    // FIT files carry ".FIT" at bytes 8-11 of the file header
+    static boolean isFit(byte[] head, int length) {
+        return length >= 12 && head[8] == '.' && head[9] == 'F' && head[10] == 'I' && head[11] == 'T';
+    }
+
+    static void read(InputStream in, TrackPoints track) {
+        try {
+            new Decoder(in, track).decode();
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The FIT file could not be read: " + e.getMessage(), e);
+        }
+    }
+
+    private record Definition(boolean bigEndian, int globalMessage, int[] fieldNumbers, int[] fieldSizes, int developerBytes) {
+    }
+
+    private static final class Decoder {
+
+        private final InputStream in;
+        private final TrackPoints track;
+        private final Definition[] definitions = new Definition[16];
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int limit;
+        private long consumed;
+        private long lastTimestamp = -1;
+
+        Decoder(InputStream in, TrackPoints track) {
+            this.in = in;
+            this.track = track;
+        }
+
+        void decode() throws IOException {
+            int headerSize = u8();
+            if (headerSize < 12) {
+                throw new IOException("unexpected header size " + headerSize);
+            }
+            u8(); // Protocol version
+            skip(2); // Profile version
+            long dataSize = u32(false);
+            skip(headerSize - 8); // ".FIT" and the optional header CRC
+            long end = consumed + dataSize;
+
+            while (consumed < end) {
+                int header = u8();
+                if ((header & 0x80) != 0) {
+                    // Compressed timestamp header: 5 bits of seconds on top of the last full timestamp
+                    int offset = header & 0x1F;
+                    if (lastTimestamp >= 0) {
+                        long base = lastTimestamp & ~0x1FL;
+                        lastTimestamp = offset >= (lastTimestamp & 0x1F) ? base + offset : base + offset + 0x20;
+                    }
+                    readData(definition((header >> 5) & 0x03), lastTimestamp);
+                } else if ((header & 0x40) != 0) {
+                    readDefinition(header & 0x0F, (header & 0x20) != 0);
+                } else {
+                    readData(definition(header & 0x0F), -1);
+                }
+            }
+        }
+
+        private void readDefinition(int localMessage, boolean hasDeveloperFields) throws IOException {
+            u8(); // Reserved
+            boolean bigEndian = u8() == 1;
+            int globalMessage = u16(bigEndian);
+            int fieldCount = u8();
+            int[] numbers = new int[fieldCount];
+            int[] sizes = new int[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                numbers[i] = u8();
+                sizes[i] = u8();
+                u8(); // Base type; the sizes are all we need to skip fields
+            }
+            int developerBytes = 0;
+            if (hasDeveloperFields) {
+                int developerFields = u8();
+                for (int i = 0; i < developerFields; i++) {
+                    u8(); // Field number
+                    developerBytes += u8();
+                    u8(); // Developer data index
+                }
+            }
+            definitions[localMessage] = new Definition(bigEndian, globalMessage, numbers, sizes, developerBytes);
+        }
+
+        private void readData(Definition definition, long compressedTimestamp) throws IOException {
+            long timestamp = compressedTimestamp;
+            int lat = INVALID_SINT32;
+            int lng = INVALID_SINT32;
+            for (int i = 0; i < definition.fieldNumbers().length; i++) {
+                int number = definition.fieldNumbers()[i];
+                int size = definition.fieldSizes()[i];
+                if (size == 4 && number == FIELD_TIMESTAMP) {
+                    long value = u32(definition.bigEndian());
+                    if (value != INVALID_UINT32) {
+                        timestamp = value;
+                    }
+                } else if (size == 4 && definition.globalMessage() == RECORD_MESSAGE && number == FIELD_POSITION_LAT) {
+                    lat = (int) u32(definition.bigEndian());
+                } else if (size == 4 && definition.globalMessage() == RECORD_MESSAGE && number == FIELD_POSITION_LONG) {
+                    lng = (int) u32(definition.bigEndian());
+                } else {
+                    skip(size);
+                }
+            }
+            skip(definition.developerBytes());
+            if (timestamp >= 0 && compressedTimestamp < 0) {
+                lastTimestamp = timestamp;
+            }
+            if (definition.globalMessage() == RECORD_MESSAGE && timestamp >= MIN_ABSOLUTE_TIMESTAMP
+                    && lat != INVALID_SINT32 && lng != INVALID_SINT32) {
+                track.add(lat * SEMICIRCLES_TO_DEGREES, lng * SEMICIRCLES_TO_DEGREES, timestamp + FIT_EPOCH_OFFSET);
+            }
+        }
+
+        private Definition definition(int localMessage) throws IOException {
+            Definition definition = definitions[localMessage];
+            if (definition == null) {
+                throw new IOException("data message for undefined local message type " + localMessage);
+            }
+            return definition;
+        }
+
+        private int u8() throws IOException {
+            if (position == limit) {
+                fill();
+            }
+            consumed++;
+            return buffer[position++] & 0xFF;
+        }
+
+        private int u16(boolean bigEndian) throws IOException {
+            int a = u8();
+            int b = u8();
+            return bigEndian ? (a << 8) | b : (b << 8) | a;
+        }
+
+        private long u32(boolean bigEndian) throws IOException {
+            long a = u8();
+            long b = u8();
+            long c = u8();
+            long d = u8();
+            return bigEndian ? (a << 24) | (b << 16) | (c << 8) | d : (d << 24) | (c << 16) | (b << 8) | a;
+        }
+
+        private void skip(int bytes) throws IOException {
+            while (bytes > 0) {
+                if (position == limit) {
+                    fill();
+                }
+                int step = Math.min(bytes, limit - position);
+                position += step;
+                consumed += step;
+                bytes -= step;
+            }
+        }
+
+        private void fill() throws IOException {
+            int read = in.read(buffer);
+            if (read <= 0) {
+                throw new IOException("file is truncated");
+            }
+            position = 0;
+            limit = read;
+        }
+    }
+}
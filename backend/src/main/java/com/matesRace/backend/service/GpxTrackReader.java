@@ -0,0 +1,101 @@
+package com.matesRace.backend.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Reads the timed {@code <trkpt>} elements of a GPX 1.0/1.1 file with a StAX cursor, so only the
+ * current element is ever in memory. Extensions (heart rate, power, ...) and untimed points are skipped;
+ * elements are matched by local name so any namespace prefix works.
+ */
+final class GpxTrackReader {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = newInputFactory();
+
+    private GpxTrackReader() {
+    }
+
+    static void read(InputStream in, TrackPoints track) {
+        XMLStreamReader xml = null;
+        try {
+            xml = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            boolean sawGpx = false;
+            double lat = Double.NaN;
+            double lng = Double.NaN;
+            Instant time = null;
+            boolean inPoint = false;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = xml.getLocalName();
+                    if (name.equals("gpx")) {
+                        sawGpx = true;
+                    } else if (name.equals("trkpt")) {
+                        inPoint = true;
+                        lat = parseCoordinate(xml.getAttributeValue(null, "lat"));
+                        lng = parseCoordinate(xml.getAttributeValue(null, "lon"));
+                        time = null;
+                    } else if (inPoint && name.equals("time")) {
+                        time = parseTime(xml.getElementText());
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && inPoint && xml.getLocalName().equals("trkpt")) {
+                    inPoint = false;
+                    if (time != null) {
+                        track.add(lat, lng, time.getEpochSecond());
+                    }
+                }
+            }
+            if (!sawGpx) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The file is XML but not GPX.");
+            }
+        } catch (XMLStreamException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The GPX file could not be read: " + e.getMessage(), e);
+        } finally {
+            if (xml != null) {
+                try {
+                    xml.close();
+                } catch (XMLStreamException e) {
+                    // Nothing left to read
+                }
+            }
+        }
+    }
+
+    private static double parseCoordinate(String value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    // GPX times are xsd:dateTime, in practice always UTC ("Z") or with an offset
+    private static Instant parseTime(String value) {
+        try {
+            return DateTimeFormatter.ISO_DATE_TIME.parse(value.trim(), Instant::from);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // No DTDs or external entities: an upload must not be able to make the server fetch or read files
+    private static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
@@ -0,0 +1,69 @@
+package com.matesRace.backend.service;
+
+import com.matesRace.backend.dto.LeaderboardEntryDTO;
+import com.matesRace.backend.dto.ParticipantSegmentResultDTO;
+import com.matesRace.backend.dto.ParticipantSummaryDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Orders participants the way the race page leaderboard does: only riders who submitted and
+ * have a visible time on every race segment are listed, fastest total first, ranked 1..n in
+ * that order (ties keep submission order). Works on already-converted DTOs, so times hidden
+ * from the viewer keep a rider off the board exactly as in the frontend.
+ */
+@Component
+public class LeaderboardRanker {
+
+    public List<LeaderboardEntryDTO> rank(List<ParticipantSummaryDTO> participants, List<Long> raceSegmentIds) {
+        if (participants == null || raceSegmentIds == null || raceSegmentIds.isEmpty()) {
+            return List.of();
+        }
+        long[] segmentIds = raceSegmentIds.stream().mapToLong(Long::longValue).toArray();
+
+        List<LeaderboardEntryDTO> entries = new ArrayList<>(participants.size());
+        for (ParticipantSummaryDTO participant : participants) {
+            if (!participant.isSubmittedRide() || participant.getSegmentResults() == null) {
+                continue;
+            }
+            int total = totalTimeSeconds(participant.getSegmentResults(), segmentIds);
+            if (total >= 0) {
+                entries.add(new LeaderboardEntryDTO(0, participant.getId(), participant.getUser(), total));
+            }
+        }
+
+        entries.sort(Comparator.comparingInt(LeaderboardEntryDTO::getTotalTimeSeconds)); // Stable, like Array.prototype.sort
+        for (int i = 0; i < entries.size(); i++) {
+            entries.get(i).setRank(i + 1);
+        }
+        return entries;
+    }
+
+    // Sex categories as split on the race page: "M", "F", everything else is "other"
+    public static String category(ParticipantSummaryDTO participant) {
+        String sex = participant.getUser() != null ? participant.getUser().getUserSex() : null;
+        return "M".equals(sex) || "F".equals(sex) ? sex : "other";
+    }
+
+    // Sum of the first result for each race segment, or -1 when a segment is missing or its time is hidden
+    private static int totalTimeSeconds(List<ParticipantSegmentResultDTO> results, long[] segmentIds) {
+        int total = 0;
+        for (long segmentId : segmentIds) {
+            Integer time = null;
+            for (ParticipantSegmentResultDTO result : results) {
+                if (result.getSegmentId() != null && result.getSegmentId() == segmentId) {
+                    time = result.getElapsedTimeSeconds();
+                    break;
+                }
+            }
+            if (time == null) {
+                return -1;
+            }
+            total += time;
+        }
+        return total;
+    }
+}
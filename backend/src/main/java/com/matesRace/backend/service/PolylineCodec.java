@@ -0,0 +1,71 @@
+package com.matesRace.backend.service;
+
+import java.util.Arrays;
+
+/**
+ * Google's encoded polyline format at 1e-5 degree precision, as used by Strava's {@code map.polyline}.
+ * Coordinates are interleaved: {@code [lat0, lng0, lat1, lng1, ...]}.
+ */
+public final class PolylineCodec {
+
+    private static final double SCALE = 1e5;
+
+    private PolylineCodec() {
+    }
+
+    public static double[] decode(String encoded) {
+        double[] coordinates = new double[encoded.length()]; // Every value takes at least one character
+        int count = 0;
+        int[] position = {0};
+        long lat = 0;
+        long lng = 0;
+        while (position[0] < encoded.length()) {
+            lat += readValue(encoded, position);
+            if (position[0] >= encoded.length()) {
+                break; // A latitude without a longitude: truncated input
+            }
+            lng += readValue(encoded, position);
+            coordinates[count++] = lat / SCALE;
+            coordinates[count++] = lng / SCALE;
+        }
+        return Arrays.copyOf(coordinates, count);
+    }
+
+    public static String encode(double[] coordinates) {
+        StringBuilder encoded = new StringBuilder(coordinates.length * 4);
+        long previousLat = 0;
+        long previousLng = 0;
+        for (int i = 0; i + 1 < coordinates.length; i += 2) {
+            long lat = Math.round(coordinates[i] * SCALE);
+            long lng = Math.round(coordinates[i + 1] * SCALE);
+            writeValue(encoded, lat - previousLat);
+            writeValue(encoded, lng - previousLng);
+            previousLat = lat;
+            previousLng = lng;
+        }
+        return encoded.toString();
+    }
+
+    private static long readValue(String encoded, int[] position) {
+        long result = 0;
+        int shift = 0;
+        while (position[0] < encoded.length() && shift < 64) {
+            int chunk = encoded.charAt(position[0]++) - 63;
+            result |= (long) (chunk & 0x1F) << shift;
+            shift += 5;
+            if (chunk < 0x20) {
+                break;
+            }
+        }
+        return (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+    }
+
+    private static void writeValue(StringBuilder encoded, long value) {
+        long bits = value < 0 ? ~(value << 1) : value << 1;
+        while (bits >= 0x20) {
+            encoded.append((char) ((0x20 | (bits & 0x1F)) + 63));
+            bits >>= 5;
+        }
+        encoded.append((char) (bits + 63));
+    }
+}
@@ -0,0 +1,195 @@
+package com.matesRace.backend.service;
+
+import com.matesRace.backend.dto.OrganiserSummaryDTO;
+import com.matesRace.backend.dto.ParticipantSegmentResultDTO;
+import com.matesRace.backend.dto.ParticipantSummaryDTO;
+import com.matesRace.backend.dto.RaceResponseDTO;
+import com.matesRace.backend.dto.RaceSummaryDTO;
+import com.matesRace.backend.dto.UserSummaryDTO;
+import com.matesRace.backend.model.Participant;
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Builds the API views of races and participants, applying the hide-until-finish and organiser-only rules.
+@Component
+public class RaceDtoConverter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RaceDtoConverter.class);
+
+    private final Timer summaryConversionTimer;
+    private final Timer detailConversionTimer;
+
+    public RaceDtoConverter(MeterRegistry meterRegistry) {
+        this.summaryConversionTimer = conversionTimer(meterRegistry, "summary");
+        this.detailConversionTimer = conversionTimer(meterRegistry, "detail");
+    }
+
+    private static Timer conversionTimer(MeterRegistry meterRegistry, String view) {
+        return Timer.builder("matesrace.dto.conversion")
+                .description("Time spent converting a race entity into its API view")
+                .tag("view", view)
+                .register(meterRegistry);
+    }
+
+    public UserSummaryDTO convertToUserSummaryDTO(User user) {
+        if (user == null) {
+            return null;
+        }
+        return new UserSummaryDTO(
+                user.getStravaId(),
+                user.getDisplayName(),
+                user.getUserStravaFirstName(),
+                user.getUserStravaLastName(),
+                user.getUserStravaPic(),
+                user.getUserSex()
+        );
+    }
+
+    public ParticipantSummaryDTO convertToParticipantSummaryDTO(Participant participant, Race raceContext, OAuth2User currentUserPrincipal) {
+        if (participant == null) {
+            return null;
+        }
+        if (!Hibernate.isInitialized(participant.getUser())) {
+            Hibernate.initialize(participant.getUser());
+        }
+        if (!Hibernate.isInitialized(participant.getSegmentResults())) {
+            Hibernate.initialize(participant.getSegmentResults());
+        }
+
+        List<ParticipantSegmentResultDTO> segmentResultDTOs = new ArrayList<>();
+        boolean raceFinished = raceContext.getEndDate() != null && Instant.now().isAfter(raceContext.getEndDate());
+        boolean isOrganiser = false;
+        long currentUserId = -1;
+
+        if (currentUserPrincipal != null) {
+            try {
+                currentUserId = Long.parseLong(currentUserPrincipal.getName());
+            } catch (NumberFormatException e) {
+                logger.warn("Could not parse current user ID from principal in convertToParticipantSummaryDTO: {}", currentUserPrincipal.getName());
+            }
+            if (raceContext.getOrganiser() != null && !Hibernate.isInitialized(raceContext.getOrganiser())) {
+                Hibernate.initialize(raceContext.getOrganiser());
+            }
+            isOrganiser = raceContext.getOrganiser() != null && raceContext.getOrganiser().getStravaId().equals(currentUserId);
+        }
+
+        boolean showTimesForThisParticipant = isOrganiser || raceFinished || !raceContext.isHideLeaderboardUntilFinish() ||
+                (participant.getUser() != null && participant.getUser().getStravaId().equals(currentUserId));
+
+        if (participant.getSegmentResults() != null) {
+            segmentResultDTOs = participant.getSegmentResults().stream()
+                    .map(psr -> new ParticipantSegmentResultDTO(
+                            psr.getSegmentId(),
+                            psr.getSegmentName(),
+                            showTimesForThisParticipant ? psr.getElapsedTimeSeconds() : null))
+                    .collect(Collectors.toList());
+        }
+
+        return new ParticipantSummaryDTO(
+                participant.getId(),
+                convertToUserSummaryDTO(participant.getUser()),
+                participant.isSubmittedRide(),
+                participant.getSubmittedActivityId(),
+                segmentResultDTOs
+        );
+    }
+
+    // List views: counters come from the race row, so neither participants nor segment ids are touched
+    public RaceSummaryDTO convertToRaceSummaryDTO(Race race) {
+        return summaryConversionTimer.record(() -> {
+            if (race == null) {
+                return null;
+            }
+            User organiser = race.getOrganiser();
+            return new RaceSummaryDTO(
+                    race.getId(),
+                    race.getRaceName(),
+                    race.getStartDate() != null ? race.getStartDate().toString() : null,
+                    race.getEndDate() != null ? race.getEndDate().toString() : null,
+                    organiser != null ? new OrganiserSummaryDTO(organiser.getStravaId(), organiser.getDisplayName(),
+                            organiser.getUserStravaFirstName(), organiser.getUserStravaLastName()) : null,
+                    race.isPrivate(),
+                    race.isHideLeaderboardUntilFinish(),
+                    race.isUseSexCategories(),
+                    race.getParticipantCount(),
+                    race.getSubmittedCount()
+            );
+        });
+    }
+
+    public RaceResponseDTO convertToRaceResponseDTO(Race race, boolean includeParticipantsDetails, OAuth2User currentUserPrincipal) {
+        Timer timer = includeParticipantsDetails ? detailConversionTimer : summaryConversionTimer;
+        return timer.record(() -> buildRaceResponseDTO(race, includeParticipantsDetails, currentUserPrincipal));
+    }
+
+    private RaceResponseDTO buildRaceResponseDTO(Race race, boolean includeParticipantsDetails, OAuth2User currentUserPrincipal) {
+        if (race == null) {
+            return null;
+        }
+        if(!Hibernate.isInitialized(race.getOrganiser())) {
+            Hibernate.initialize(race.getOrganiser());
+        }
+
+        List<ParticipantSummaryDTO> participantDTOs = Collections.emptyList();
+        // Maintained on the race row; list views never touch the participants table
+        int participantCount = race.getParticipantCount();
+
+        if (includeParticipantsDetails) {
+            if (Hibernate.isInitialized(race.getParticipants()) && race.getParticipants() != null) {
+                participantCount = race.getParticipants().size();
+                participantDTOs = race.getParticipants().stream()
+                        .map(participant -> convertToParticipantSummaryDTO(participant, race, currentUserPrincipal))
+                        .collect(Collectors.toList());
+            } else {
+                logger.warn("Participant details requested but collection not initialized for race ID: {}. Details will be missing.", race.getId());
+            }
+        }
+        String racePassword = null;
+
+        // Determine if the current user is the organizer and set the password
+        if (currentUserPrincipal != null && race.getOrganiser() != null) {
+            long currentUserId = -1;
+            try {
+                currentUserId = Long.parseLong(currentUserPrincipal.getName());
+            } catch (NumberFormatException e) {
+                logger.warn("Could not parse current user ID from principal in convertToRaceResponseDTO: {}", currentUserPrincipal.getName());
+            }
+            // Ensure organiser's Strava ID is not null before comparing
+            if (race.getOrganiser().getStravaId() != null && race.getOrganiser().getStravaId().equals(currentUserId)) {
+                racePassword = race.getPassword(); // Assign password if organizer
+            }
+        }
+
+        return new RaceResponseDTO(
+                race.getId(),
+                race.getRaceName(),
+                race.getRaceInfo(),
+                race.getStartDate() != null ? race.getStartDate().toString() : null,
+                race.getEndDate() != null ? race.getEndDate().toString() : null,
+                race.getSegmentIds() != null ? Arrays.stream(race.getSegmentIds()).boxed().collect(Collectors.toList()) : new ArrayList<>(),
+                convertToUserSummaryDTO(race.getOrganiser()),
+                race.isPrivate(),
+                race.isHideLeaderboardUntilFinish(),
+                race.isUseSexCategories(),
+                includeParticipantsDetails ? participantDTOs : Collections.emptyList(), // Ensure it's empty list if not included
+                participantCount,
+                race.getSubmittedCount(),
+                racePassword
+        );
+
+    }
+}
@@ -0,0 +1,155 @@
+package com.matesRace.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matesRace.backend.dto.RaceResponseDTO;
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.model.RaceResultSnapshot;
+import com.matesRace.backend.repository.ParticipantRepository;
+import com.matesRace.backend.repository.RaceRepository;
+import com.matesRace.backend.repository.RaceResultSnapshotRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Freezes the results of races whose end date has passed into a single compressed
+ * {@link RaceResultSnapshot} row, so finished-race views are one primary-key read.
+ */
+@Service
+public class RaceFinalizationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RaceFinalizationService.class);
+
+    private final RaceRepository raceRepository;
+    private final ParticipantRepository participantRepository;
+    private final RaceResultSnapshotRepository snapshotRepository;
+    private final RaceDtoConverter raceDtoConverter;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public RaceFinalizationService(RaceRepository raceRepository,
+                                   ParticipantRepository participantRepository,
+                                   RaceResultSnapshotRepository snapshotRepository,
+                                   RaceDtoConverter raceDtoConverter,
+                                   ObjectMapper objectMapper,
+                                   PlatformTransactionManager transactionManager) {
+        this.raceRepository = raceRepository;
+        this.participantRepository = participantRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.raceDtoConverter = raceDtoConverter;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${matesrace.finalization.interval:PT1M}",
+            initialDelayString = "${matesrace.finalization.initial-delay:PT30S}")
+    public void finalizeFinishedRaces() {
+        List<Long> dueRaceIds = raceRepository.findFinishedRaceIdsWithoutSnapshot(Instant.now());
+        if (dueRaceIds.isEmpty()) {
+            return;
+        }
+        logger.info("Finalizing results for {} finished race(s).", dueRaceIds.size());
+        for (Long raceId : dueRaceIds) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> finalizeRace(raceId));
+            } catch (DataIntegrityViolationException e) {
+                logger.debug("Race {} was finalized concurrently by another node.", raceId);
+            } catch (Exception e) {
+                logger.error("Failed to finalize results for race {}: {}", raceId, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void finalizeRace(Long raceId) {
+        // Read before the results, so any change committed while they are read shows up as a newer version below
+        Long version = raceRepository.findResultsVersionById(raceId).orElse(null);
+        Race race = raceRepository.findById(raceId).orElse(null);
+        if (version == null || race == null || race.getEndDate() == null || !Instant.now().isAfter(race.getEndDate())) {
+            return;
+        }
+        Hibernate.initialize(race.getOrganiser());
+        participantRepository.fetchSegmentResultsByRaceId(raceId);
+
+        // No principal: once a race has finished every time is visible, and the password is never included
+        RaceResponseDTO results = raceDtoConverter.convertToRaceResponseDTO(race, true, null);
+        byte[] payload = compress(results);
+
+        // Under the race's row lock: a change still in flight commits first and is seen here, and one that starts
+        // now waits for this commit and then deletes the snapshot. Either way no stale snapshot survives.
+        if (!version.equals(raceRepository.lockResultsVersionById(raceId).orElse(null))) {
+            logger.info("Results of race {} changed while being frozen; the next sweep retries.", raceId);
+            return;
+        }
+        entityManager.persist(new RaceResultSnapshot(raceId, race.getOrganiser().getStravaId(), Instant.now(), payload));
+        logger.info("Race {} finalized with {} participants.", raceId, results.getParticipantCount());
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<RaceResponseDTO> findSnapshot(Long raceId) {
+        return snapshotRepository.findById(raceId).map(snapshot -> decompress(snapshot.getPayload()));
+    }
+
+    // Snapshots by race id for a batch read, leaving out races the viewer organises: they get the live view, which carries the password
+    @Transactional(readOnly = true)
+    public Map<Long, RaceResponseDTO> findSnapshotsForViewer(Collection<Long> raceIds, String viewerStravaId) {
+        Map<Long, RaceResponseDTO> snapshots = new HashMap<>();
+        for (RaceResultSnapshot snapshot : snapshotRepository.findAllById(raceIds)) {
+            if (!String.valueOf(snapshot.getOrganiserStravaId()).equals(viewerStravaId)) {
+                snapshots.put(snapshot.getRaceId(), decompress(snapshot.getPayload()));
+            }
+        }
+        return snapshots;
+    }
+
+    // Drops the frozen results after a change to a finished race; the next sweep re-finalizes it.
+    // Also bumps the race's results version, which stops a snapshot being built right now from being saved.
+    @Transactional
+    public void invalidate(Long raceId) {
+        raceRepository.bumpResultsVersion(raceId);
+        if (snapshotRepository.deleteByRaceId(raceId) > 0) {
+            logger.info("Results snapshot for race {} invalidated.", raceId);
+        }
+    }
+
+    private byte[] compress(RaceResponseDTO results) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, results);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write results snapshot", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private RaceResponseDTO decompress(byte[] payload) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return objectMapper.readValue(gzip, RaceResponseDTO.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read results snapshot", e);
+        }
+    }
+}
@@ -0,0 +1,586 @@
+package com.matesRace.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.matesRace.backend.dto.ImportRowErrorDTO;
+import com.matesRace.backend.dto.ParticipantSegmentResultDTO;
+import com.matesRace.backend.dto.RaceImportResultDTO;
+import com.matesRace.backend.dto.RaceResultRowDTO;
+import com.matesRace.backend.model.Race;
+import jakarta.persistence.EntityManagerFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Bulk import of participants and their segment times into a race, for clubs moving over from spreadsheets.
+ * <p>
+ * The upload is parsed as it streams in and COPYed into a temporary staging table, so the file is never
+ * held in memory. Unknown athletes and repeated athletes are then rejected with set-based queries, and the
+ * remaining rows are merged into {@code participants} and {@code participant_segment_results} in the same
+ * transaction. A row with times replaces that rider's results, like a resubmission; a row without times only
+ * adds the rider. Rows with errors are skipped and reported by line, the rest are imported.
+ * <p>
+ * Both formats match the results export: CSV with a {@code strava_id} column, an optional {@code activity_id}
+ * and one column per race segment (headed by the segment id, {@code Segment <id>} or {@code <name> (<id>)});
+ * NDJSON with one {@link RaceResultRowDTO} per line. Other columns and fields are ignored.
+ */
+@Service
+public class RaceImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RaceImportService.class);
+
+    public enum Format { CSV, NDJSON }
+
+    private static final Pattern NAMED_SEGMENT_HEADER = Pattern.compile("^(.*?)\\s*\\((\\d+)\\)$");
+    private static final Pattern SEGMENT_HEADER = Pattern.compile("^(?:segment[ _]?)?(\\d+)$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CLOCK_TIME = Pattern.compile("^(?:(\\d+):)?([0-5]?\\d):([0-5]\\d)$");
+    private static final int COPY_BUFFER_CHARS = 1 << 16;
+
+    private static final String CREATE_STAGING_SQL = """
+            CREATE TEMPORARY TABLE race_import_rows (
+                line_no integer NOT NULL,
+                strava_id bigint NOT NULL,
+                activity_id bigint,
+                times integer[]
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COPY_STAGING_SQL = "COPY race_import_rows (line_no, strava_id, activity_id, times) FROM STDIN WITH (FORMAT csv)";
+
+    private static final String REJECT_UNKNOWN_USERS_SQL = """
+            DELETE FROM race_import_rows r
+            WHERE NOT EXISTS (SELECT 1 FROM users u WHERE u.strava_id = r.strava_id)
+            RETURNING r.line_no, r.strava_id
+            """;
+
+    private static final String REJECT_REPEATED_USERS_SQL = """
+            DELETE FROM race_import_rows r
+            USING (SELECT strava_id, MIN(line_no) AS first_line FROM race_import_rows GROUP BY strava_id) f
+            WHERE f.strava_id = r.strava_id AND r.line_no > f.first_line
+            RETURNING r.line_no, r.strava_id, f.first_line
+            """;
+
+    // Parameters: race id
+    private static final String UPDATE_PARTICIPANTS_SQL = """
+            UPDATE participants p
+            SET submitted_ride = true, submitted_activity_id = r.activity_id
+            FROM race_import_rows r
+            WHERE p.race_id = ? AND p.user_strava_id = r.strava_id AND r.times IS NOT NULL
+            """;
+
+    // Parameters: race id
+    private static final String DELETE_REPLACED_RESULTS_SQL = """
+            DELETE FROM participant_segment_results psr
+            USING participants p, race_import_rows r
+            WHERE psr.participant_id = p.id AND p.race_id = ? AND p.user_strava_id = r.strava_id AND r.times IS NOT NULL
+            """;
+
+    // Parameters: race id, race id. In file order, so ties on the leaderboard keep the file's order.
+    private static final String INSERT_PARTICIPANTS_SQL = """
+            INSERT INTO participants (race_id, user_strava_id, submitted_ride, submitted_activity_id)
+            SELECT ?, r.strava_id, r.times IS NOT NULL, r.activity_id
+            FROM race_import_rows r
+            WHERE NOT EXISTS (SELECT 1 FROM participants p WHERE p.race_id = ? AND p.user_strava_id = r.strava_id)
+            ORDER BY r.line_no
+            """;
+
+    // Parameters: segment names from the file, race id x3.
+    // The race's segment_ids and a row's times line up by position; names fall back to earlier submissions.
+    private static final String INSERT_RESULTS_SQL = """
+            WITH file_names AS (
+                SELECT n.segment_id, n.name
+                FROM races rc, unnest(rc.segment_ids, CAST(? AS text[])) AS n(segment_id, name)
+                WHERE rc.id = ? AND n.name IS NOT NULL
+            ), known_names AS (
+                SELECT DISTINCT ON (psr.segment_id) psr.segment_id, psr.segment_name
+                FROM participant_segment_results psr
+                JOIN participants p ON p.id = psr.participant_id
+                WHERE p.race_id = ? AND psr.segment_name IS NOT NULL
+                ORDER BY psr.segment_id, psr.id
+            )
+            INSERT INTO participant_segment_results (participant_id, segment_id, segment_name, elapsed_time_seconds)
+            SELECT p.id, t.segment_id, COALESCE(fn.name, kn.segment_name), t.elapsed
+            FROM race_import_rows r
+            JOIN participants p ON p.race_id = ? AND p.user_strava_id = r.strava_id
+            JOIN races rc ON rc.id = p.race_id
+            CROSS JOIN LATERAL unnest(rc.segment_ids, r.times) AS t(segment_id, elapsed)
+            LEFT JOIN file_names fn ON fn.segment_id = t.segment_id
+            LEFT JOIN known_names kn ON kn.segment_id = t.segment_id
+            WHERE r.times IS NOT NULL AND t.elapsed IS NOT NULL AND t.segment_id IS NOT NULL
+            """;
+
+    // Parameters: race id x3. Recounted rather than adjusted, the import may both add and update riders.
+    private static final String RECOUNT_SQL = """
+            UPDATE races
+            SET participant_count = (SELECT COUNT(*) FROM participants WHERE race_id = ?),
+                submitted_count = (SELECT COUNT(*) FROM participants WHERE race_id = ? AND submitted_ride)
+            WHERE id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader rowReader;
+    private final EntityManagerFactory entityManagerFactory;
+    private final RaceFinalizationService raceFinalizationService;
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    @Value("${matesrace.races.import.max-rows:20000}")
+    private int maxRows;
+
+    @Value("${matesrace.races.import.max-reported-errors:100}")
+    private int maxReportedErrors;
+
+    public RaceImportService(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             EntityManagerFactory entityManagerFactory,
+                             RaceFinalizationService raceFinalizationService,
+                             CacheInvalidationBus cacheInvalidationBus) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rowReader = objectMapper.readerFor(RaceResultRowDTO.class);
+        this.entityManagerFactory = entityManagerFactory;
+        this.raceFinalizationService = raceFinalizationService;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
+
+    public RaceImportResultDTO importResults(Race race, InputStream body, Format format, boolean dryRun) throws IOException {
+        long raceId = race.getId();
+        long[] segmentIds = race.getSegmentIds() != null ? race.getSegmentIds() : new long[0];
+        long started = System.nanoTime();
+        RaceImportResultDTO result;
+        try {
+            result = transactionTemplate.execute(status -> {
+                RaceImportResultDTO outcome = runImport(raceId, segmentIds, body, format, dryRun);
+                if (dryRun) {
+                    status.setRollbackOnly();
+                } else {
+                    raceFinalizationService.invalidate(raceId); // Historic times can change a finished race's results
+                    cacheInvalidationBus.raceChanged(raceId); // Also rebuilds the race's dashboard rows
+                }
+                return outcome;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (!dryRun) {
+            entityManagerFactory.getCache().evict(Race.class, raceId); // Counters were written behind Hibernate's back
+        }
+        logger.info("Import into race {}{}: {} row(s), {} created, {} updated, {} result(s), {} error(s) in {} ms.",
+                raceId, dryRun ? " (dry run)" : "", result.getRowsRead(), result.getParticipantsCreated(),
+                result.getParticipantsUpdated(), result.getSegmentResultsWritten(), result.getErrorCount(),
+                (System.nanoTime() - started) / 1_000_000);
+        return result;
+    }
+
+    private RaceImportResultDTO runImport(long raceId, long[] segmentIds, InputStream body, Format format, boolean dryRun) {
+        jdbcTemplate.execute(CREATE_STAGING_SQL);
+
+        Staging staging = new Staging(segmentIds.length);
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING_SQL);
+            try {
+                staging.copyIn = copyIn;
+                Reader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+                if (format == Format.CSV) {
+                    readCsv(reader, segmentIds, staging);
+                } else {
+                    readNdjson(reader, segmentIds, staging);
+                }
+                staging.flush();
+                copyIn.endCopy();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+            return null;
+        });
+
+        jdbcTemplate.query(REJECT_UNKNOWN_USERS_SQL, rs -> {
+            staging.sqlError(rs.getInt(1), "Athlete " + rs.getLong(2) + " has no matesRace account.");
+        });
+        jdbcTemplate.query(REJECT_REPEATED_USERS_SQL, rs -> {
+            staging.sqlError(rs.getInt(1), "Athlete " + rs.getLong(2) + " is already on line " + rs.getInt(3) + ".");
+        });
+
+        int updated = jdbcTemplate.update(UPDATE_PARTICIPANTS_SQL, raceId);
+        jdbcTemplate.update(DELETE_REPLACED_RESULTS_SQL, raceId);
+        int created = jdbcTemplate.update(INSERT_PARTICIPANTS_SQL, raceId, raceId);
+        int results = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (var statement = connection.prepareStatement(INSERT_RESULTS_SQL)) {
+                statement.setArray(1, connection.createArrayOf("text", staging.segmentNames));
+                statement.setLong(2, raceId);
+                statement.setLong(3, raceId);
+                statement.setLong(4, raceId);
+                return statement.executeUpdate();
+            }
+        });
+        jdbcTemplate.update(RECOUNT_SQL, raceId, raceId, raceId);
+
+        staging.errors.sort(Comparator.comparingInt(ImportRowErrorDTO::getLine));
+        List<ImportRowErrorDTO> reported = new ArrayList<>(staging.errors.subList(0, Math.min(maxReportedErrors, staging.errors.size())));
+        return new RaceImportResultDTO(staging.rowsRead, created, updated, results, dryRun, staging.errorCount, reported);
+    }
+
+    private void readCsv(Reader reader, long[] segmentIds, Staging staging) throws IOException {
+        CsvRecordReader csv = new CsvRecordReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The file is empty.");
+        }
+
+        int stravaIdColumn = -1;
+        int activityIdColumn = -1;
+        int[] segmentColumns = new int[header.size()];
+        Arrays.fill(segmentColumns, -1); // Column -> position in the race's segment list
+        for (int column = 0; column < header.size(); column++) {
+            String name = header.get(column).trim();
+            String key = name.toLowerCase(Locale.ROOT);
+            if (key.equals("strava_id") || key.equals("stravaid")) {
+                stravaIdColumn = column;
+                continue;
+            }
+            if (key.equals("activity_id") || key.equals("activityid")) {
+                activityIdColumn = column;
+                continue;
+            }
+            Matcher named = NAMED_SEGMENT_HEADER.matcher(name);
+            Matcher plain = SEGMENT_HEADER.matcher(name);
+            String segmentName = named.matches() && !named.group(1).isEmpty() ? named.group(1) : null;
+            String segmentId = named.matches() ? named.group(2) : plain.matches() ? plain.group(1) : null;
+            if (segmentId == null) {
+                continue; // Ranks, names, totals and the like from an export
+            }
+            int position = indexOf(segmentIds, Long.parseLong(segmentId));
+            if (position < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Column '" + name + "': segment " + segmentId + " is not part of this race.");
+            }
+            segmentColumns[column] = position;
+            if (segmentName != null && staging.segmentNames[position] == null) {
+                staging.segmentNames[position] = segmentName;
+            }
+        }
+        if (stravaIdColumn < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The header needs a strava_id column.");
+        }
+
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            int line = csv.recordLine();
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            if (!staging.countRow()) {
+                break;
+            }
+            Long stravaId = parseId(cell(record, stravaIdColumn));
+            if (stravaId == null) {
+                staging.error(line, "strava_id '" + cell(record, stravaIdColumn) + "' is not a Strava athlete id.");
+                continue;
+            }
+            String activityCell = activityIdColumn >= 0 ? cell(record, activityIdColumn) : "";
+            Long activityId = parseId(activityCell);
+            if (activityId == null && !activityCell.isBlank()) {
+                staging.error(line, "activity_id '" + activityCell + "' is not a Strava activity id.");
+                continue;
+            }
+            Integer[] times = new Integer[segmentIds.length];
+            String problem = null;
+            for (int column = 0; column < segmentColumns.length && problem == null; column++) {
+                if (segmentColumns[column] < 0) {
+                    continue;
+                }
+                String value = cell(record, column);
+                if (value.isBlank()) {
+                    continue;
+                }
+                Integer seconds = parseTime(value);
+                if (seconds == null) {
+                    problem = "'" + value + "' in column '" + header.get(column) + "' is not a time (seconds or h:mm:ss).";
+                } else if (times[segmentColumns[column]] == null) {
+                    times[segmentColumns[column]] = seconds;
+                }
+            }
+            if (problem != null) {
+                staging.error(line, problem);
+                continue;
+            }
+            staging.add(line, stravaId, activityId, times);
+        }
+    }
+
+    private void readNdjson(Reader reader, long[] segmentIds, Staging staging) throws IOException {
+        BufferedReader lines = (BufferedReader) reader;
+        String text;
+        int line = 0;
+        while ((text = lines.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+            if (!staging.countRow()) {
+                break;
+            }
+            RaceResultRowDTO row;
+            try {
+                row = rowReader.readValue(text);
+            } catch (JsonProcessingException e) {
+                staging.error(line, "Not a valid JSON object: " + e.getOriginalMessage());
+                continue;
+            }
+            if (row.getUser() == null || row.getUser().getStravaId() == null || row.getUser().getStravaId() <= 0) {
+                staging.error(line, "user.stravaId is missing.");
+                continue;
+            }
+            Integer[] times = new Integer[segmentIds.length];
+            String problem = null;
+            for (ParticipantSegmentResultDTO result : row.getSegmentResults() != null ? row.getSegmentResults() : List.<ParticipantSegmentResultDTO>of()) {
+                int position = result.getSegmentId() != null ? indexOf(segmentIds, result.getSegmentId()) : -1;
+                if (position < 0) {
+                    problem = "Segment " + result.getSegmentId() + " is not part of this race.";
+                    break;
+                }
+                Integer seconds = result.getElapsedTimeSeconds();
+                if (seconds != null && seconds <= 0) {
+                    problem = "elapsedTimeSeconds must be positive for segment " + result.getSegmentId() + ".";
+                    break;
+                }
+                if (seconds != null && times[position] == null) {
+                    times[position] = seconds;
+                }
+                if (result.getSegmentName() != null && staging.segmentNames[position] == null) {
+                    staging.segmentNames[position] = result.getSegmentName();
+                }
+            }
+            if (problem != null) {
+                staging.error(line, problem);
+                continue;
+            }
+            staging.add(line, row.getUser().getStravaId(), row.getSubmittedActivityId(), times);
+        }
+    }
+
+    private static String cell(List<String> record, int column) {
+        return column < record.size() ? record.get(column).trim() : "";
+    }
+
+    private static Long parseId(String value) {
+        try {
+            long id = Long.parseLong(value.trim());
+            return id > 0 ? id : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Whole seconds, or a clock time as spreadsheets show it: m:ss, mm:ss or h:mm:ss
+    static Integer parseTime(String value) {
+        String text = value.trim();
+        try {
+            int seconds = Integer.parseInt(text);
+            return seconds > 0 ? seconds : null;
+        } catch (NumberFormatException e) {
+            // Not plain seconds
+        }
+        Matcher clock = CLOCK_TIME.matcher(text);
+        if (!clock.matches()) {
+            return null;
+        }
+        long hours = clock.group(1) != null ? Long.parseLong(clock.group(1)) : 0;
+        long seconds = hours * 3600 + Long.parseLong(clock.group(2)) * 60 + Long.parseLong(clock.group(3));
+        return seconds > 0 && seconds <= Integer.MAX_VALUE ? (int) seconds : null;
+    }
+
+    private static int indexOf(long[] values, long value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Collects parsed rows into COPY chunks and keeps the error report
+    private final class Staging {
+
+        private final StringBuilder buffer = new StringBuilder(COPY_BUFFER_CHARS + 1024);
+        private final String[] segmentNames;
+        private final List<ImportRowErrorDTO> errors = new ArrayList<>();
+        private CopyIn copyIn;
+        private int rowsRead;
+        private int errorCount;
+
+        Staging(int segments) {
+            this.segmentNames = new String[segments];
+        }
+
+        // Called for each non-blank record; a file of exactly maxRows rows is not reported as truncated
+        boolean countRow() {
+            if (rowsRead < maxRows) {
+                rowsRead++;
+                return true;
+            }
+            error(0, "Only the first " + maxRows + " rows are imported; the rest of the file was ignored.");
+            return false;
+        }
+
+        void add(int line, long stravaId, Long activityId, Integer[] times) throws IOException {
+            buffer.append(line).append(',').append(stravaId).append(',');
+            if (activityId != null) {
+                buffer.append(activityId);
+            }
+            buffer.append(',');
+            if (Arrays.stream(times).anyMatch(time -> time != null)) {
+                buffer.append("\"{");
+                for (int i = 0; i < times.length; i++) {
+                    buffer.append(i > 0 ? "," : "").append(times[i] != null ? times[i].toString() : "NULL");
+                }
+                buffer.append("}\"");
+            }
+            buffer.append('\n');
+            if (buffer.length() >= COPY_BUFFER_CHARS) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            buffer.setLength(0);
+            try {
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+            } catch (SQLException e) {
+                throw new IOException("Could not stage import rows: " + e.getMessage(), e);
+            }
+        }
+
+        void error(int line, String message) {
+            errorCount++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ImportRowErrorDTO(line, message));
+            }
+        }
+
+        // Not capped: these come back in no particular order and are cut after sorting by line
+        void sqlError(int line, String message) {
+            errorCount++;
+            errors.add(new ImportRowErrorDTO(line, message));
+        }
+    }
+
+    /**
+     * Minimal RFC 4180 reader: quoted fields with doubled quotes, commas and line breaks inside quotes,
+     * CRLF or LF line ends. Reads one record at a time from the underlying stream.
+     */
+    static final class CsvRecordReader {
+
+        private final Reader reader;
+        private int line = 1;
+        private int recordLine;
+        private int pending = -2; // One character of look-ahead; -2 means none
+
+        CsvRecordReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        // Line the last returned record started on
+        int recordLine() {
+            return recordLine;
+        }
+
+        List<String> next() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        break; // Unterminated quote: take what we have
+                    }
+                    if (c == '"') {
+                        int after = read();
+                        if (after == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = after;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    if (c == '\r') {
+                        int after = read();
+                        if (after != '\n') {
+                            pending = after;
+                        }
+                    }
+                    if (c != -1) {
+                        line++;
+                    }
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private int read() throws IOException {
+            if (pending != -2) {
+                int c = pending;
+                pending = -2;
+                return c;
+            }
+            return reader.read();
+        }
+    }
+}
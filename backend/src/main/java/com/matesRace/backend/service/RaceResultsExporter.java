@@ -0,0 +1,287 @@
+package com.matesRace.backend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.matesRace.backend.dto.ParticipantSegmentResultDTO;
+import com.matesRace.backend.dto.RaceResultRowDTO;
+import com.matesRace.backend.dto.UserSummaryDTO;
+import com.matesRace.backend.model.Race;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a race's results as CSV or NDJSON straight from a forward-only JDBC cursor, one participant
+ * per row, so memory stays flat however many riders the race has. Ranking, totals and the first-result-
+ * per-segment rule are computed in the query and match {@link LeaderboardRanker}; times hidden from the
+ * viewer are left empty, as in the race view built by {@link RaceDtoConverter}.
+ */
+@Service
+public class RaceResultsExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RaceResultsExporter.class);
+
+    public enum Format { CSV, NDJSON }
+
+    // Parameters: race id (firsts), show all times, viewer, race id (participants).
+    // Ranked rows come first in rank order, then everyone else in participant order.
+    private static final String RESULTS_SQL = """
+            WITH firsts AS (
+                SELECT DISTINCT ON (psr.participant_id, psr.segment_id)
+                       psr.participant_id, psr.segment_id, psr.elapsed_time_seconds
+                FROM participant_segment_results psr
+                JOIN participants p ON p.id = psr.participant_id
+                WHERE p.race_id = ?
+                ORDER BY psr.participant_id, psr.segment_id, psr.id
+            ), totals AS (
+                SELECT p.id, p.user_strava_id, p.submitted_ride, p.submitted_activity_id,
+                       (? OR COALESCE(p.user_strava_id = ?, false)) AS visible,
+                       array_agg(f.elapsed_time_seconds ORDER BY s.ord) FILTER (WHERE s.ord IS NOT NULL) AS times,
+                       CASE WHEN p.submitted_ride
+                                 AND cardinality(r.segment_ids) > 0
+                                 AND COUNT(f.elapsed_time_seconds) = cardinality(r.segment_ids)
+                            THEN SUM(f.elapsed_time_seconds) END AS total
+                FROM participants p
+                JOIN races r ON r.id = p.race_id
+                LEFT JOIN LATERAL unnest(r.segment_ids) WITH ORDINALITY AS s(segment_id, ord) ON true
+                LEFT JOIN firsts f ON f.participant_id = p.id AND f.segment_id = s.segment_id
+                WHERE p.race_id = ?
+                GROUP BY p.id, r.segment_ids
+            ), ranked AS (
+                SELECT totals.*,
+                       CASE WHEN visible AND total IS NOT NULL
+                            THEN ROW_NUMBER() OVER (ORDER BY (visible AND total IS NOT NULL) DESC, total, id) END AS overall_rank
+                FROM totals
+            )
+            SELECT rk.overall_rank, rk.id, rk.submitted_ride, rk.submitted_activity_id, rk.visible, rk.total, rk.times,
+                   u.strava_id, u.display_name, u.user_strava_first_name, u.user_strava_last_name, u.user_strava_pic, u.user_sex
+            FROM ranked rk
+            LEFT JOIN users u ON u.strava_id = rk.user_strava_id
+            ORDER BY rk.overall_rank NULLS LAST, rk.id
+            """;
+
+    private static final String SEGMENT_NAMES_SQL = """
+            SELECT DISTINCT ON (psr.segment_id) psr.segment_id, psr.segment_name
+            FROM participant_segment_results psr
+            JOIN participants p ON p.id = psr.participant_id
+            WHERE p.race_id = ? AND psr.segment_name IS NOT NULL
+            ORDER BY psr.segment_id, psr.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectWriter rowWriter;
+
+    @Value("${matesrace.races.export.fetch-size:500}")
+    private int fetchSize;
+
+    public RaceResultsExporter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true); // Postgres only honours the fetch size inside a transaction; also routes to a replica
+        this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    // Same rule as the race view: the organiser, anyone after the finish, or anyone while the leaderboard isn't hidden
+    public static boolean showsAllTimes(Race race, Long viewerStravaId, Instant now) {
+        boolean isOrganiser = race.getOrganiser() != null && race.getOrganiser().getStravaId().equals(viewerStravaId);
+        boolean raceFinished = race.getEndDate() != null && now.isAfter(race.getEndDate());
+        return isOrganiser || raceFinished || !race.isHideLeaderboardUntilFinish();
+    }
+
+    public void writeResults(Long raceId, boolean showAllTimes, Long viewerStravaId, Format format, OutputStream out) throws IOException {
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try {
+                    stream(raceId, showAllTimes, viewerStravaId, format, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // Typically the client went away mid-download
+        }
+    }
+
+    private void stream(Long raceId, boolean showAllTimes, Long viewerStravaId, Format format, OutputStream out) throws IOException {
+        List<Long> segmentIds = jdbcTemplate.query("SELECT segment_ids FROM races WHERE id = ?",
+                rs -> rs.next() ? toLongList(rs.getArray(1)) : List.of(), raceId);
+        Map<Long, String> segmentNames = new HashMap<>();
+        jdbcTemplate.query(SEGMENT_NAMES_SQL, rs -> {
+            segmentNames.put(rs.getLong(1), rs.getString(2));
+        }, raceId);
+
+        RowSink sink = format == Format.CSV ? new CsvSink(out, segmentIds, segmentNames) : new NdjsonSink(out);
+        long started = System.nanoTime();
+        int[] rows = {0};
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(RESULTS_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            statement.setLong(1, raceId);
+            statement.setBoolean(2, showAllTimes);
+            statement.setObject(3, viewerStravaId);
+            statement.setLong(4, raceId);
+            return statement;
+        }, rs -> {
+            try {
+                sink.write(toRow(rs, segmentIds, segmentNames));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows[0]++;
+        });
+        sink.finish();
+        logger.debug("Exported {} result rows of race {} as {} in {} ms.", rows[0], raceId, format, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static RaceResultRowDTO toRow(ResultSet rs, List<Long> segmentIds, Map<Long, String> segmentNames) throws SQLException {
+        boolean visible = rs.getBoolean("visible");
+        Integer[] times = rs.getArray("times") != null ? (Integer[]) rs.getArray("times").getArray() : new Integer[0];
+        List<ParticipantSegmentResultDTO> segmentResults = new ArrayList<>(segmentIds.size());
+        for (int i = 0; i < segmentIds.size(); i++) {
+            Integer time = visible && i < times.length ? times[i] : null;
+            segmentResults.add(new ParticipantSegmentResultDTO(segmentIds.get(i), segmentNames.get(segmentIds.get(i)), time));
+        }
+
+        long stravaId = rs.getLong("strava_id");
+        UserSummaryDTO user = rs.wasNull() ? null : new UserSummaryDTO(stravaId, rs.getString("display_name"),
+                rs.getString("user_strava_first_name"), rs.getString("user_strava_last_name"),
+                rs.getString("user_strava_pic"), rs.getString("user_sex"));
+        long activityId = rs.getLong("submitted_activity_id");
+        Long submittedActivityId = rs.wasNull() ? null : activityId;
+        int total = rs.getInt("total");
+        Integer totalTimeSeconds = rs.wasNull() || !visible ? null : total;
+        int rank = rs.getInt("overall_rank");
+        Integer overallRank = rs.wasNull() ? null : rank;
+
+        return new RaceResultRowDTO(overallRank, rs.getLong("id"), user, rs.getBoolean("submitted_ride"),
+                submittedActivityId, totalTimeSeconds, segmentResults);
+    }
+
+    private static List<Long> toLongList(Array array) throws SQLException {
+        if (array == null) {
+            return List.of();
+        }
+        List<Long> values = new ArrayList<>();
+        for (Long value : (Long[]) array.getArray()) {
+            values.add(value);
+        }
+        return values;
+    }
+
+    private interface RowSink {
+        void write(RaceResultRowDTO row) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    // One header line, then one line per participant with a column per race segment
+    private static final class CsvSink implements RowSink {
+
+        private final Writer writer;
+
+        CsvSink(OutputStream out, List<Long> segmentIds, Map<Long, String> segmentNames) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write("rank,participant_id,strava_id,display_name,sex,submitted,activity_id,total_time_seconds");
+            for (Long segmentId : segmentIds) {
+                String name = segmentNames.get(segmentId);
+                writer.write(',');
+                writer.write(escape(name != null ? name + " (" + segmentId + ")" : "Segment " + segmentId));
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(RaceResultRowDTO row) throws IOException {
+            UserSummaryDTO user = row.getUser();
+            writer.write(value(row.getRank()));
+            writer.write(',');
+            writer.write(value(row.getParticipantId()));
+            writer.write(',');
+            writer.write(user != null ? value(user.getStravaId()) : "");
+            writer.write(',');
+            writer.write(user != null ? escape(user.getDisplayName()) : "");
+            writer.write(',');
+            writer.write(user != null ? escape(user.getUserSex()) : "");
+            writer.write(',');
+            writer.write(String.valueOf(row.isSubmittedRide()));
+            writer.write(',');
+            writer.write(value(row.getSubmittedActivityId()));
+            writer.write(',');
+            writer.write(value(row.getTotalTimeSeconds()));
+            for (ParticipantSegmentResultDTO result : row.getSegmentResults()) {
+                writer.write(',');
+                writer.write(value(result.getElapsedTimeSeconds()));
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        private static String value(Object value) {
+            return value != null ? value.toString() : "";
+        }
+
+        // RFC 4180 quoting; a leading formula character is neutralised so spreadsheets show names as text
+        static String escape(String value) {
+            if (value == null || value.isEmpty()) {
+                return "";
+            }
+            if ("=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+            return value;
+        }
+    }
+
+    // One RaceResultRowDTO per line
+    private final class NdjsonSink implements RowSink {
+
+        private final JsonGenerator generator;
+
+        NdjsonSink(OutputStream out) throws IOException {
+            this.generator = rowWriter.createGenerator(out);
+            generator.setRootValueSeparator(null); // Lines are ended explicitly, no space before the next value
+        }
+
+        @Override
+        public void write(RaceResultRowDTO row) throws IOException {
+            rowWriter.writeValue(generator, row);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.matesRace.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Rebuilds race_search_words, the word list misspelt searches are corrected against. New words are
+// searchable right away; they only take part in spelling correction after the next refresh.
+@Service
+public class RaceSearchVocabularyRefresher {
+
+    private static final Logger logger = LoggerFactory.getLogger(RaceSearchVocabularyRefresher.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RaceSearchVocabularyRefresher(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${matesrace.races.search.vocabulary-refresh:PT1H}",
+            initialDelayString = "${matesrace.races.search.vocabulary-refresh:PT1H}")
+    public void refresh() {
+        try {
+            jdbcTemplate.execute("REFRESH MATERIALIZED VIEW CONCURRENTLY race_search_words");
+        } catch (Exception e) {
+            logger.warn("Failed to refresh the race search vocabulary: {}", e.getMessage());
+        }
+    }
+}
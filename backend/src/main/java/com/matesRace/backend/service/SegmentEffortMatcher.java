@@ -0,0 +1,106 @@
+package com.matesRace.backend.service;
+
+import com.matesRace.backend.model.Participant;
+import com.matesRace.backend.model.ParticipantSegmentResult;
+import com.matesRace.backend.model.Segment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Picks the efforts on race segments out of a Strava activity's segment_efforts list
+public final class SegmentEffortMatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentEffortMatcher.class);
+
+    private SegmentEffortMatcher() {
+    }
+
+    public static List<ParticipantSegmentResult> match(List<Map<String, Object>> segmentEfforts, long[] raceSegmentIds,
+                                                       Participant participant, Long stravaActivityId) {
+        List<ParticipantSegmentResult> matchedResults = new ArrayList<>();
+
+        for (Map<String, Object> effort : segmentEfforts) {
+            if (effort == null) {
+                logger.warn("Encountered null segment effort in activity {}", stravaActivityId);
+                continue;
+            }
+            Object segmentMapObj = effort.get("segment");
+            if (!(segmentMapObj instanceof Map)) {
+                logger.warn("Segment effort in activity {} is missing 'segment' map or it's not a map. Effort data: {}", stravaActivityId, effort);
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> segmentMap = (Map<String, Object>) segmentMapObj;
+
+            Object segmentIdObj = segmentMap.get("id");
+            Object elapsedTimeObj = effort.get("elapsed_time");
+            Object segmentNameObj = segmentMap.get("name");
+
+            if (!(segmentIdObj instanceof Number) || !(elapsedTimeObj instanceof Number)) {
+                logger.warn("Segment effort in activity {} has invalid ID or elapsed_time type. Segment Data: {}, Effort Data: {}",
+                        stravaActivityId, segmentMap, effort);
+                continue;
+            }
+
+            long segmentEffortId = ((Number) segmentIdObj).longValue();
+
+            if (isRaceSegment(raceSegmentIds, segmentEffortId)) {
+                ParticipantSegmentResult psr = new ParticipantSegmentResult();
+                psr.setParticipant(participant);
+                psr.setSegmentId(segmentEffortId);
+                psr.setSegmentName(segmentNameObj instanceof String ? (String) segmentNameObj : "Unnamed Segment");
+                psr.setElapsedTimeSeconds(((Number) elapsedTimeObj).intValue());
+
+                matchedResults.add(psr);
+                logger.debug("Matched race segment ID {} (Name: {}) with time {}s for participant {}",
+                        segmentEffortId, psr.getSegmentName(), psr.getElapsedTimeSeconds(), participant.getId());
+            }
+        }
+        return matchedResults;
+    }
+
+    // Start and end gates of the race segments in an activity, for the local segment catalogue.
+    // Summary segments in segment_efforts carry start_latlng/end_latlng, so this costs no extra Strava calls.
+    public static List<Segment> gates(List<Map<String, Object>> segmentEfforts, long[] raceSegmentIds, Instant now) {
+        List<Segment> gates = new ArrayList<>();
+        for (Map<String, Object> effort : segmentEfforts) {
+            if (effort == null || !(effort.get("segment") instanceof Map<?, ?> segmentMap)) {
+                continue;
+            }
+            if (!(segmentMap.get("id") instanceof Number id) || !isRaceSegment(raceSegmentIds, id.longValue())) {
+                continue;
+            }
+            double[] start = latLng(segmentMap.get("start_latlng"));
+            double[] end = latLng(segmentMap.get("end_latlng"));
+            if (start == null || end == null || gates.stream().anyMatch(gate -> gate.getId() == id.longValue())) {
+                continue;
+            }
+            gates.add(new Segment(id.longValue(), segmentMap.get("name") instanceof String name ? name : null,
+                    start[0], start[1], end[0], end[1],
+                    segmentMap.get("distance") instanceof Number distance ? distance.doubleValue() : null, null, now));
+        }
+        return gates;
+    }
+
+    static double[] latLng(Object value) {
+        if (value instanceof List<?> pair && pair.size() == 2
+                && pair.get(0) instanceof Number lat && pair.get(1) instanceof Number lng) {
+            return new double[]{lat.doubleValue(), lng.doubleValue()};
+        }
+        return null;
+    }
+
+    // Races have a handful of segments, a linear scan of the primitive array beats boxing into a Set
+    static boolean isRaceSegment(long[] raceSegmentIds, long segmentId) {
+        for (long raceSegmentId : raceSegmentIds) {
+            if (raceSegmentId == segmentId) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
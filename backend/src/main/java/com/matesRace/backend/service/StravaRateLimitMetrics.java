@@ -0,0 +1,87 @@
+package com.matesRace.backend.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the rate-limit headers Strava returns on every API response as gauges.
+ * Strava sends "15-minute,daily" pairs, e.g. {@code X-RateLimit-Limit: 200,2000} and
+ * {@code X-RateLimit-Usage: 31,450}; read endpoints also carry {@code X-ReadRateLimit-*}.
+ */
+@Component
+public class StravaRateLimitMetrics implements ExchangeFilterFunction {
+
+    private final Window overall;
+    private final Window read;
+
+    public StravaRateLimitMetrics(MeterRegistry meterRegistry) {
+        this.overall = new Window(meterRegistry, "overall");
+        this.read = new Window(meterRegistry, "read");
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return next.exchange(request).doOnNext(response -> {
+            HttpHeaders headers = response.headers().asHttpHeaders();
+            overall.update(headers.getFirst("X-RateLimit-Limit"), headers.getFirst("X-RateLimit-Usage"));
+            read.update(headers.getFirst("X-ReadRateLimit-Limit"), headers.getFirst("X-ReadRateLimit-Usage"));
+        });
+    }
+
+    private static final class Window {
+        private final AtomicLong shortLimit = new AtomicLong(-1);
+        private final AtomicLong shortUsage = new AtomicLong(-1);
+        private final AtomicLong dailyLimit = new AtomicLong(-1);
+        private final AtomicLong dailyUsage = new AtomicLong(-1);
+
+        Window(MeterRegistry registry, String limit) {
+            register(registry, limit, "15m", shortLimit, shortUsage);
+            register(registry, limit, "daily", dailyLimit, dailyUsage);
+        }
+
+        private static void register(MeterRegistry registry, String limit, String window, AtomicLong max, AtomicLong used) {
+            Gauge.builder("strava.ratelimit.limit", max, AtomicLong::get)
+                    .tag("limit", limit).tag("window", window).register(registry);
+            Gauge.builder("strava.ratelimit.usage", used, AtomicLong::get)
+                    .tag("limit", limit).tag("window", window).register(registry);
+            Gauge.builder("strava.ratelimit.remaining", () -> max.get() < 0 ? Double.NaN : max.get() - used.get())
+                    .tag("limit", limit).tag("window", window).register(registry);
+        }
+
+        void update(String limitHeader, String usageHeader) {
+            long[] limits = parse(limitHeader);
+            long[] usages = parse(usageHeader);
+            if (limits == null || usages == null) {
+                return;
+            }
+            shortLimit.set(limits[0]);
+            dailyLimit.set(limits[1]);
+            shortUsage.set(usages[0]);
+            dailyUsage.set(usages[1]);
+        }
+
+        private static long[] parse(String header) {
+            if (header == null) {
+                return null;
+            }
+            String[] parts = header.split(",");
+            if (parts.length < 2) {
+                return null;
+            }
+            try {
+                return new long[]{Long.parseLong(parts[0].trim()), Long.parseLong(parts[1].trim())};
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -6,10 +6,18 @@ import com.matesRace.backend.exception.RaceNotFoundException;
 import com.matesRace.backend.exception.UserNotFoundException;
 import com.matesRace.backend.model.*;
 import com.matesRace.backend.repository.*;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -19,13 +27,20 @@ import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
 // import org.springframework.security.oauth2.core.OAuth2AccessToken;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.server.ResponseStatusException;
 // Mono is not directly used if .block() is always used, but good to have if considering reactive flow
 // import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +59,16 @@ public class StravaService {
     private final RaceRepository raceRepository;
     private final ParticipantRepository participantRepository;
     private final ParticipantSegmentResultRepository segmentResultRepository;
+    private final SegmentRepository segmentRepository;
+    private final RaceFinalizationService raceFinalizationService;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final ObservationRegistry observationRegistry;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor taskExecutor;
+
+    @Value("${matesrace.strava.segment-geometry-timeout:PT5S}")
+    private Duration segmentGeometryTimeout;
 
     @Value("${spring.security.oauth2.client.provider.strava.token-uri}")
     private String tokenUri;
@@ -51,21 +76,43 @@ public class StravaService {
     @Value("${spring.security.oauth2.client.registration.strava.client-id}")
     private String clientId;
 
-    private final String STRAVA_API_BASE_URL = "https://www.strava.com/api/v3";
-
     @Autowired
     public StravaService(WebClient.Builder webClientBuilder,
                          OAuth2AuthorizedClientService authorizedClientService,
                          UserRepository userRepository,
                          RaceRepository raceRepository,
                          ParticipantRepository participantRepository,
-                         ParticipantSegmentResultRepository segmentResultRepository) {
-        this.webClient = webClientBuilder.baseUrl(STRAVA_API_BASE_URL).build();
+                         ParticipantSegmentResultRepository segmentResultRepository,
+                         SegmentRepository segmentRepository,
+                         RaceFinalizationService raceFinalizationService,
+                         CacheInvalidationBus cacheInvalidationBus,
+                         StravaRateLimitMetrics rateLimitMetrics,
+                         ObservationRegistry observationRegistry,
+                         ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager,
+                         @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) TaskExecutor taskExecutor,
+                         @Value("${matesrace.strava.api-base-url}") String stravaApiBaseUrl) {
+        // Boot's builder already records http.client.requests per URI template and status
+        this.webClient = webClientBuilder.baseUrl(stravaApiBaseUrl).filter(rateLimitMetrics).build();
         this.authorizedClientService = authorizedClientService;
         this.userRepository = userRepository;
         this.raceRepository = raceRepository;
         this.participantRepository = participantRepository;
         this.segmentResultRepository = segmentResultRepository;
+        this.segmentRepository = segmentRepository;
+        this.raceFinalizationService = raceFinalizationService;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.observationRegistry = observationRegistry;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.taskExecutor = taskExecutor;
+    }
+
+    // One span per stage of a submit, and the matesrace.submit.stage timer tagged with the stage
+    private Observation submitStage(String stage) {
+        return Observation.createNotStarted("matesrace.submit.stage", observationRegistry)
+                .contextualName("submit " + stage)
+                .lowCardinalityKeyValue("stage", stage);
     }
 
     private String getAccessToken(OAuth2User principal) {
@@ -90,11 +137,9 @@ public class StravaService {
 
         try {
             List<Map<String, Object>> stravaActivitiesResponse = webClient.get()
-                    .uri(uriBuilder -> uriBuilder.path("/athlete/activities")
-                            .queryParam("before", beforeTimestamp)
-                            .queryParam("after", afterTimestamp)
-                            .queryParam("per_page", 50) // Fetch up to 50
-                            .build())
+                    // A URI template (rather than a UriBuilder function) keeps the http.client.requests uri tag bounded
+                    .uri("/athlete/activities?before={before}&after={after}&per_page={perPage}",
+                            beforeTimestamp, afterTimestamp, 50) // Fetch up to 50
                     .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
                     .retrieve()
                     .bodyToMono(new ParameterizedTypeReference<List<Map<String, Object>>>() {})
@@ -184,39 +229,47 @@ public class StravaService {
 
     @Transactional
     public void processAndSaveActivityResults(OAuth2User principal, Long raceId, Long stravaActivityId) {
-        String accessToken = getAccessToken(principal);
+        String accessToken = submitStage("token").observe(() -> getAccessToken(principal));
         long userStravaId = Long.parseLong(principal.getName());
-
-        User user = userRepository.findByStravaId(userStravaId)
-                .orElseThrow(() -> new UserNotFoundException("User not found with Strava ID: " + userStravaId));
-
-        Race race = raceRepository.findById(raceId)
-                .orElseThrow(() -> new RaceNotFoundException("Race not found with ID: " + raceId));
-
-        Participant participant = participantRepository.findByRaceIdAndUserStravaId(raceId, userStravaId)
-                .orElseGet(() -> {
-                    logger.warn("Participant record not found for user {} in race {}. Creating one.", userStravaId, raceId);
-                    Participant newP = new Participant();
-                    newP.setRace(race);
-                    newP.setUser(user);
-                    newP.setSubmittedRide(false);
-                    return participantRepository.save(newP);
-                });
-
-        Map<String, Object> activityDetails;
+        TransactionSynchronizationManager.registerSynchronization(new CommitObservation(submitStage("commit")));
+
+        Participant participant = submitStage("load").observe(() -> {
+            User user = userRepository.findByStravaId(userStravaId)
+                    .orElseThrow(() -> new UserNotFoundException("User not found with Strava ID: " + userStravaId));
+
+            Race race = raceRepository.findSummaryById(raceId)
+                    .orElseThrow(() -> new RaceNotFoundException("Race not found with ID: " + raceId));
+
+            return participantRepository.findByRaceIdAndUserStravaId(raceId, userStravaId)
+                    .orElseGet(() -> {
+                        logger.warn("Participant record not found for user {} in race {}. Creating one.", userStravaId, raceId);
+                        Participant newP = new Participant();
+                        newP.setRace(race);
+                        newP.setUser(user);
+                        newP.setSubmittedRide(false);
+                        Participant savedP = participantRepository.save(newP);
+                        raceRepository.adjustParticipantCount(raceId, 1);
+                        return savedP;
+                    });
+        });
+        Race race = participant.getRace();
+
+        byte[] activityBody;
         try {
             logger.debug("Fetching detailed Strava activity {} for user {}", stravaActivityId, principal.getName());
-            activityDetails = webClient.get()
+            activityBody = submitStage("fetch").observe(() -> webClient.get()
                     .uri("/activities/{id}", stravaActivityId)
                     .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
                     .retrieve()
-                    .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
-                    .block();
+                    .bodyToMono(byte[].class) // Decoded below so the JSON mapping gets its own span
+                    .block());
         } catch (Exception e) {
             logger.error("Error fetching Strava activity details for activity {}: {}", stravaActivityId, e.getMessage(), e); // Log full stack trace
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to fetch activity details from Strava.", e);
         }
 
+        Map<String, Object> activityDetails = submitStage("decode").observe(() -> decodeActivity(activityBody, stravaActivityId));
+
         if (activityDetails == null) { // Added null check for activityDetails itself
             logger.error("Fetched Strava activity details are null for activity ID: {}", stravaActivityId);
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Fetched activity details from Strava are null.");
@@ -230,69 +283,149 @@ public class StravaService {
 
         @SuppressWarnings("unchecked") // Suppress warning as we've checked instanceof List
         List<Map<String, Object>> segmentEfforts = (List<Map<String, Object>>) activityDetails.get("segment_efforts");
-        List<Long> raceSegmentIds = race.getSegmentIds();
+        long[] raceSegmentIds = race.getSegmentIds() != null ? race.getSegmentIds() : new long[0];
 
         logger.debug("Processing {} segment efforts for activity {}, for race {} with {} defined segments.",
-                segmentEfforts.size(), stravaActivityId, raceId, raceSegmentIds.size());
-
-        // Clear existing segment results for this participant to handle updates
-        if (participant.getId() != null) { // Ensure participant has an ID (i.e., is persisted)
-            List<ParticipantSegmentResult> existingResults = segmentResultRepository.findByParticipantId(participant.getId());
-            if (!existingResults.isEmpty()) {
-                logger.debug("Deleting {} existing segment results for participant {}", existingResults.size(), participant.getId());
-                segmentResultRepository.deleteAll(existingResults); // More explicit deletion
-            }
-        }
-        participant.getSegmentResults().clear(); // Also clear the collection in the entity
+                segmentEfforts.size(), stravaActivityId, raceId, raceSegmentIds.length);
+
+        List<ParticipantSegmentResult> matchedResults = submitStage("match").observe(() ->
+                SegmentEffortMatcher.match(segmentEfforts, raceSegmentIds, participant, stravaActivityId));
 
+        if (matchedResults.isEmpty() && raceSegmentIds.length > 0) {
+            logger.warn("User {} submitted activity {} for race {} but no matching race segments were found in the activity's efforts.",
+                    userStravaId, stravaActivityId, raceId);
+        }
 
-        for (Map<String, Object> effort : segmentEfforts) {
-            if (effort == null) {
-                logger.warn("Encountered null segment effort in activity {}", stravaActivityId);
-                continue;
+        submitStage("persist").observe(() -> {
+            // Replace any earlier results for this participant with one set-based delete.
+            // The segmentResults collection is never initialized on this path.
+            int replacedResults = segmentResultRepository.deleteByParticipantId(participant.getId());
+            if (replacedResults > 0) {
+                logger.debug("Deleted {} existing segment results for participant {}", replacedResults, participant.getId());
             }
-            Object segmentMapObj = effort.get("segment");
-            if (!(segmentMapObj instanceof Map)) {
-                logger.warn("Segment effort in activity {} is missing 'segment' map or it's not a map. Effort data: {}", stravaActivityId, effort);
-                continue;
+            if (participantRepository.markSubmitted(participant.getId()) == 1) {
+                raceRepository.adjustSubmittedCount(raceId, 1); // Re-submissions don't count twice
             }
-            @SuppressWarnings("unchecked")
-            Map<String, Object> segmentMap = (Map<String, Object>) segmentMapObj;
-
-            Object segmentIdObj = segmentMap.get("id");
-            Object elapsedTimeObj = effort.get("elapsed_time");
-            Object segmentNameObj = segmentMap.get("name");
-
-            if (!(segmentIdObj instanceof Number) || !(elapsedTimeObj instanceof Number)) {
-                logger.warn("Segment effort in activity {} has invalid ID or elapsed_time type. Segment Data: {}, Effort Data: {}",
-                        stravaActivityId, segmentMap, effort);
-                continue;
+            participant.setSubmittedRide(true);
+            participant.setSubmittedActivityId(stravaActivityId);
+            participantRepository.save(participant);
+            segmentResultRepository.saveAll(matchedResults);
+            for (Segment gate : SegmentEffortMatcher.gates(segmentEfforts, raceSegmentIds, Instant.now())) {
+                segmentRepository.upsertGates(gate.getId(), gate.getName(), gate.getStartLat(), gate.getStartLng(),
+                        gate.getEndLat(), gate.getEndLng(), gate.getDistanceMeters(), gate.getUpdatedAt());
             }
+            raceFinalizationService.invalidate(raceId); // Late submissions change the final results
+            cacheInvalidationBus.raceChanged(raceId);
+            segmentResultRepository.flush(); // Run the inserts now so the persist stage includes them
+        });
 
-            long segmentEffortId = ((Number) segmentIdObj).longValue();
+        logger.info("Successfully processed and saved activity {} for user {} in race {}", stravaActivityId, userStravaId, raceId);
+    }
 
-            if (raceSegmentIds.contains(segmentEffortId)) {
-                ParticipantSegmentResult psr = new ParticipantSegmentResult();
-                psr.setParticipant(participant);
-                psr.setSegmentId(segmentEffortId);
-                psr.setSegmentName(segmentNameObj instanceof String ? (String) segmentNameObj : "Unnamed Segment");
-                psr.setElapsedTimeSeconds(((Number) elapsedTimeObj).intValue());
+    /**
+     * Fills the local segment catalogue with the route polylines of a race's segments, so uploaded tracks
+     * can be checked against the route and not just the gates. Runs once the caller's transaction has
+     * committed, on the application task executor, so saving a race never waits on Strava: one bounded
+     * call per segment the catalogue has no polyline for yet, on the organiser's token, each result saved
+     * in its own transaction. Failures only leave those segments gate-matched.
+     */
+    public void fetchSegmentGeometry(OAuth2User principal, long[] segmentIds) {
+        long[] ids = segmentIds.clone();
+        Runnable fetch = () -> {
+            try {
+                taskExecutor.execute(() -> fetchMissingGeometry(principal, ids));
+            } catch (TaskRejectedException e) {
+                logger.warn("Could not queue the geometry fetch of segments {}: {}", Arrays.toString(ids), e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    fetch.run();
+                }
+            });
+        } else {
+            fetch.run();
+        }
+    }
 
-                participant.getSegmentResults().add(psr);
-                logger.debug("Matched race segment ID {} (Name: {}) with time {}s for participant {}",
-                        segmentEffortId, psr.getSegmentName(), psr.getElapsedTimeSeconds(), participant.getUser().getStravaId());
+    private void fetchMissingGeometry(OAuth2User principal, long[] segmentIds) {
+        List<Long> ids = Arrays.stream(segmentIds).boxed().toList();
+        List<Long> known = segmentRepository.findIdsWithPolylineByIdIn(ids);
+        List<Long> missing = ids.stream().filter(id -> !known.contains(id)).distinct().toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        String accessToken;
+        try {
+            accessToken = getAccessToken(principal);
+        } catch (ResponseStatusException e) {
+            logger.warn("No Strava token to fetch geometry of segments {}: {}", missing, e.getReason());
+            return;
+        }
+        for (Long segmentId : missing) {
+            try {
+                Map<String, Object> segment = webClient.get()
+                        .uri("/segments/{id}", segmentId)
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                        .retrieve()
+                        .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                        .block(segmentGeometryTimeout); // Throws, and cancels the request, once the timeout passes
+                double[] start = segment != null ? SegmentEffortMatcher.latLng(segment.get("start_latlng")) : null;
+                double[] end = segment != null ? SegmentEffortMatcher.latLng(segment.get("end_latlng")) : null;
+                if (start == null || end == null) {
+                    logger.warn("Strava segment {} has no start/end coordinates, not added to the catalogue.", segmentId);
+                    continue;
+                }
+                String polyline = segment.get("map") instanceof Map<?, ?> map && map.get("polyline") instanceof String line ? line : null;
+                transactionTemplate.executeWithoutResult(status -> segmentRepository.upsertGeometry(segmentId,
+                        segment.get("name") instanceof String name ? name : null,
+                        start[0], start[1], end[0], end[1],
+                        segment.get("distance") instanceof Number distance ? distance.doubleValue() : null,
+                        polyline, Instant.now()));
+            } catch (Exception e) {
+                logger.warn("Could not fetch geometry of Strava segment {}: {}", segmentId, e.getMessage());
             }
         }
+    }
 
-        if (participant.getSegmentResults().isEmpty() && !raceSegmentIds.isEmpty()) {
-            logger.warn("User {} submitted activity {} for race {} but no matching race segments were found in the activity's efforts.",
-                    userStravaId, stravaActivityId, raceId);
+    private Map<String, Object> decodeActivity(byte[] body, Long stravaActivityId) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(body, new TypeReference<Map<String, Object>>() {});
+        } catch (IOException e) {
+            logger.error("Could not parse Strava activity {}: {}", stravaActivityId, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Strava returned an unreadable activity.", e);
         }
+    }
 
-        participant.setSubmittedRide(true);
-        participant.setSubmittedActivityId(stravaActivityId);
-        participantRepository.save(participant); // This will cascade save new ParticipantSegmentResult due to @OneToMany(cascade=ALL)
+    // Times the commit of the submit transaction, which runs after this service method has returned
+    private static final class CommitObservation implements TransactionSynchronization {
+        private final Observation observation;
+        private boolean started;
 
-        logger.info("Successfully processed and saved activity {} for user {} in race {}", stravaActivityId, userStravaId, raceId);
+        CommitObservation(Observation observation) {
+            this.observation = observation;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            observation.start();
+            started = true;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (!started) {
+                return; // Rolled back before a commit was attempted
+            }
+            if (status != STATUS_COMMITTED) {
+                observation.error(new IllegalStateException("Transaction did not commit"));
+            }
+            observation.stop();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+package com.matesRace.backend.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * A recorded GPS track as three parallel primitive arrays: latitude and longitude in 1e-7 degrees
+ * (the precision GPS units record) and seconds since the first point. About 12 bytes per point,
+ * so a ten hour ride at one point per second is well under half a megabyte.
+ * <p>
+ * Points must arrive in time order; points without a later timestamp than the last one are dropped,
+ * which also folds sub-second recording down to one point per second.
+ */
+public final class TrackPoints {
+
+    private static final double E7 = 1e7;
+
+    private final int maxPoints;
+    private int[] latE7 = new int[1024];
+    private int[] lngE7 = new int[1024];
+    private int[] seconds = new int[1024];
+    private int size;
+    private long startEpochSecond;
+
+    public TrackPoints(int maxPoints) {
+        this.maxPoints = maxPoints;
+    }
+
+    public void add(double lat, double lng, long epochSecond) {
+        if (Double.isNaN(lat) || Double.isNaN(lng) || Math.abs(lat) > 90 || Math.abs(lng) > 180) {
+            return;
+        }
+        if (size == 0) {
+            startEpochSecond = epochSecond;
+        } else if (epochSecond <= startEpochSecond + seconds[size - 1]) {
+            return;
+        }
+        long offset = epochSecond - startEpochSecond;
+        if (offset > Integer.MAX_VALUE) {
+            return;
+        }
+        if (size == maxPoints) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "The track has more than " + maxPoints + " points.");
+        }
+        if (size == latE7.length) {
+            int capacity = Math.min(maxPoints, size * 2);
+            latE7 = Arrays.copyOf(latE7, capacity);
+            lngE7 = Arrays.copyOf(lngE7, capacity);
+            seconds = Arrays.copyOf(seconds, capacity);
+        }
+        latE7[size] = (int) Math.round(lat * E7);
+        lngE7[size] = (int) Math.round(lng * E7);
+        seconds[size] = (int) offset;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double lat(int i) {
+        return latE7[i] / E7;
+    }
+
+    public double lng(int i) {
+        return lngE7[i] / E7;
+    }
+
+    public long epochSecond(int i) {
+        return startEpochSecond + seconds[i];
+    }
+
+    public Instant startTime() {
+        return size > 0 ? Instant.ofEpochSecond(startEpochSecond) : null;
+    }
+
+    public Instant endTime() {
+        return size > 0 ? Instant.ofEpochSecond(epochSecond(size - 1)) : null;
+    }
+}
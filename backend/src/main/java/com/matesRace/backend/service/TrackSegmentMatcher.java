@@ -0,0 +1,352 @@
+package com.matesRace.backend.service;
+
+import com.matesRace.backend.model.Participant;
+import com.matesRace.backend.model.ParticipantSegmentResult;
+import com.matesRace.backend.model.Segment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Times a race's segments on a GPS track in a single pass over the points.
+ * <p>
+ * The start and end gates of every segment go into a uniform grid, so a track point costs one hash
+ * lookup however many segments the race has; only segments the rider is on at that moment are checked
+ * any further. An effort runs from the closest approach to the start gate to the closest approach to the
+ * end gate, both interpolated along the track between points, and must cover most of the segment's
+ * length. When the catalogue has the segment's polyline, the track must also pass its checkpoints in
+ * order, so riding between the gates by another road does not count.
+ * <p>
+ * Build once per race and reuse for any number of tracks; instances are immutable.
+ */
+public final class TrackSegmentMatcher {
+
+    static final double GATE_RADIUS_METERS = 25;
+    // Gates are also looked up from points this much further away, so sparse recordings that step over a gate still hit it
+    private static final double LOOKUP_MARGIN_METERS = 75;
+    private static final double CHECKPOINT_RADIUS_METERS = 50;
+    private static final double CHECKPOINT_SPACING_METERS = 250;
+    private static final int MAX_CHECKPOINTS = 40;
+    // Share of the segment's length the track must cover between the gates, so cutting across doesn't count
+    private static final double MIN_DISTANCE_RATIO = 0.8;
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * EARTH_RADIUS_METERS;
+
+    private final Segment[] segments;
+    private final double[][] checkpoints; // Per segment, interleaved lat/lng, in riding order
+    private final double[] minDistance;
+    private final GateGrid grid;
+
+    public TrackSegmentMatcher(List<Segment> segments) {
+        this.segments = segments.toArray(new Segment[0]);
+        this.checkpoints = new double[this.segments.length][];
+        this.minDistance = new double[this.segments.length];
+        List<Gate> gates = new ArrayList<>(this.segments.length * 2);
+        for (int s = 0; s < this.segments.length; s++) {
+            Segment segment = this.segments[s];
+            double[] route = segment.getPolyline() != null ? PolylineCodec.decode(segment.getPolyline()) : new double[0];
+            double length = segment.getDistanceMeters() != null ? segment.getDistanceMeters() : routeLength(route);
+            checkpoints[s] = checkpoints(route);
+            minDistance[s] = Math.max(2 * GATE_RADIUS_METERS, length * MIN_DISTANCE_RATIO);
+            gates.add(new Gate(s, true, segment.getStartLat(), segment.getStartLng()));
+            gates.add(new Gate(s, false, segment.getEndLat(), segment.getEndLng()));
+        }
+        this.grid = new GateGrid(gates);
+    }
+
+    public List<ParticipantSegmentResult> match(TrackPoints track, Participant participant) {
+        double[] best = new Scan(track).run();
+        List<ParticipantSegmentResult> results = new ArrayList<>();
+        for (int s = 0; s < segments.length; s++) {
+            if (best[s] != Double.POSITIVE_INFINITY) {
+                Segment segment = segments[s];
+                results.add(new ParticipantSegmentResult(null, participant, segment.getId(),
+                        segment.getName() != null ? segment.getName() : "Unnamed Segment", (int) Math.round(best[s])));
+            }
+        }
+        return results;
+    }
+
+    // State of one pass over a track: at most one attempt per segment is open at a time
+    private final class Scan {
+
+        private final TrackPoints track;
+        private final int n = segments.length;
+        private final double[] best = new double[n];
+        private final boolean[] open = new boolean[n];
+        private final boolean[] finishing = new boolean[n];
+        private final int[] progress = new int[n]; // Checkpoints passed
+        private final double[] startTime = new double[n];
+        private final double[] startGap = new double[n];
+        private final double[] startTravelled = new double[n];
+        private final double[] endTime = new double[n];
+        private final double[] endGap = new double[n];
+        private final int[] lastInStart = new int[n];
+        private final int[] lastInEnd = new int[n];
+        private final int[] openList = new int[n];
+        private int openCount;
+
+        // Closest approach of the current track step to a point: distance, and how far along the step (0..1)
+        private double gap;
+        private double along;
+
+        Scan(TrackPoints track) {
+            this.track = track;
+            Arrays.fill(best, Double.POSITIVE_INFINITY);
+            Arrays.fill(lastInStart, -2);
+            Arrays.fill(lastInEnd, -2);
+        }
+
+        double[] run() {
+            double travelled = 0;
+            double previousLat = track.size() > 0 ? track.lat(0) : 0;
+            double previousLng = track.size() > 0 ? track.lng(0) : 0;
+            for (int i = 0; i < track.size(); i++) {
+                double lat = track.lat(i);
+                double lng = track.lng(i);
+                double stepLength = distance(previousLat, previousLng, lat, lng);
+                double stepStart = i > 0 ? track.epochSecond(i - 1) - track.epochSecond(0) : 0;
+                double stepSeconds = i > 0 ? track.epochSecond(i) - track.epochSecond(i - 1) : 0;
+
+                for (int k = 0; k < openCount; k++) {
+                    int s = openList[k];
+                    double[] route = checkpoints[s];
+                    if (progress[s] * 2 < route.length) {
+                        approach(previousLat, previousLng, lat, lng, route[progress[s] * 2], route[progress[s] * 2 + 1]);
+                        if (gap <= CHECKPOINT_RADIUS_METERS) {
+                            progress[s]++;
+                        }
+                    }
+                }
+
+                Gate[] gates = grid.get(lat, lng);
+                if (gates != null) {
+                    // Ends before starts, so a loop segment finishes a lap before the next one opens
+                    for (Gate gate : gates) {
+                        if (!gate.start()) {
+                            visitEnd(gate, i, previousLat, previousLng, lat, lng, stepStart, stepSeconds, travelled, stepLength);
+                        }
+                    }
+                    for (Gate gate : gates) {
+                        if (gate.start()) {
+                            visitStart(gate, i, previousLat, previousLng, lat, lng, stepStart, stepSeconds, travelled, stepLength);
+                        }
+                    }
+                }
+
+                for (int k = openCount - 1; k >= 0; k--) {
+                    int s = openList[k];
+                    if (finishing[s] && lastInEnd[s] != i) {
+                        finish(s); // Left the end gate: the closest approach is final
+                    }
+                }
+                travelled += stepLength;
+                previousLat = lat;
+                previousLng = lng;
+            }
+            for (int k = openCount - 1; k >= 0; k--) {
+                if (finishing[openList[k]]) {
+                    finish(openList[k]);
+                }
+            }
+            return best;
+        }
+
+        private void visitStart(Gate gate, int i, double previousLat, double previousLng, double lat, double lng,
+                                double stepStart, double stepSeconds, double travelled, double stepLength) {
+            approach(previousLat, previousLng, lat, lng, gate.lat(), gate.lng());
+            if (gap > GATE_RADIUS_METERS) {
+                return;
+            }
+            int s = gate.segment();
+            boolean sameVisit = lastInStart[s] == i - 1;
+            lastInStart[s] = i;
+            if (sameVisit && gap >= startGap[s]) {
+                return;
+            }
+            if (!sameVisit && finishing[s]) {
+                finish(s);
+            }
+            if (!open[s]) {
+                open[s] = true;
+                openList[openCount++] = s;
+            }
+            progress[s] = 0;
+            startGap[s] = gap;
+            startTime[s] = stepStart + along * stepSeconds;
+            startTravelled[s] = travelled + along * stepLength;
+        }
+
+        private void visitEnd(Gate gate, int i, double previousLat, double previousLng, double lat, double lng,
+                              double stepStart, double stepSeconds, double travelled, double stepLength) {
+            int s = gate.segment();
+            if (!open[s]) {
+                return;
+            }
+            approach(previousLat, previousLng, lat, lng, gate.lat(), gate.lng());
+            if (gap > GATE_RADIUS_METERS) {
+                return;
+            }
+            if (finishing[s]) {
+                lastInEnd[s] = i;
+                if (gap < endGap[s]) {
+                    endGap[s] = gap;
+                    endTime[s] = stepStart + along * stepSeconds;
+                }
+            } else if (progress[s] * 2 >= checkpoints[s].length
+                    && travelled + along * stepLength - startTravelled[s] >= minDistance[s]) {
+                lastInEnd[s] = i;
+                finishing[s] = true;
+                endGap[s] = gap;
+                endTime[s] = stepStart + along * stepSeconds;
+            }
+        }
+
+        private void finish(int s) {
+            double elapsed = endTime[s] - startTime[s];
+            if (elapsed > 0 && elapsed < best[s]) {
+                best[s] = elapsed;
+            }
+            open[s] = false;
+            finishing[s] = false;
+            for (int k = 0; k < openCount; k++) {
+                if (openList[k] == s) {
+                    openList[k] = openList[--openCount];
+                    break;
+                }
+            }
+        }
+
+        // Projects the target onto the step from (lat1, lng1) to (lat2, lng2) in local metres around the target
+        private void approach(double lat1, double lng1, double lat2, double lng2, double targetLat, double targetLng) {
+            double cos = Math.cos(Math.toRadians(targetLat));
+            double ax = (lng1 - targetLng) * cos * METERS_PER_DEGREE;
+            double ay = (lat1 - targetLat) * METERS_PER_DEGREE;
+            double dx = (lng2 - lng1) * cos * METERS_PER_DEGREE;
+            double dy = (lat2 - lat1) * METERS_PER_DEGREE;
+            double lengthSquared = dx * dx + dy * dy;
+            along = lengthSquared > 0 ? Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSquared)) : 1;
+            double x = ax + along * dx;
+            double y = ay + along * dy;
+            gap = Math.sqrt(x * x + y * y);
+        }
+    }
+
+    // Evenly spaced points along the route, leaving out the stretches inside the gates
+    private static double[] checkpoints(double[] route) {
+        double length = routeLength(route);
+        if (length < 4 * GATE_RADIUS_METERS) {
+            return new double[0];
+        }
+        double spacing = Math.max(CHECKPOINT_SPACING_METERS, length / MAX_CHECKPOINTS);
+        List<Double> points = new ArrayList<>();
+        double next = spacing;
+        double covered = 0;
+        for (int i = 2; i + 1 < route.length && next < length - 2 * GATE_RADIUS_METERS; i += 2) {
+            double step = distance(route[i - 2], route[i - 1], route[i], route[i + 1]);
+            while (step > 0 && next <= covered + step && next < length - 2 * GATE_RADIUS_METERS) {
+                double fraction = (next - covered) / step;
+                points.add(route[i - 2] + fraction * (route[i] - route[i - 2]));
+                points.add(route[i - 1] + fraction * (route[i + 1] - route[i - 1]));
+                next += spacing;
+            }
+            covered += step;
+        }
+        return points.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    private static double routeLength(double[] route) {
+        double length = 0;
+        for (int i = 2; i + 1 < route.length; i += 2) {
+            length += distance(route[i - 2], route[i - 1], route[i], route[i + 1]);
+        }
+        return length;
+    }
+
+    // Equirectangular approximation: well within GPS error over gate radii and one-second steps
+    static double distance(double lat1, double lng1, double lat2, double lng2) {
+        double x = Math.toRadians(lng2 - lng1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS_METERS;
+    }
+
+    private record Gate(int segment, boolean start, double lat, double lng) {
+    }
+
+    /**
+     * Uniform grid over the gates with open addressing on the packed cell key. Each gate is listed in every
+     * cell its lookup radius overlaps, so a point only ever looks at its own cell; cells twice the radius
+     * wide keep that to at most four cells per gate.
+     */
+    private static final class GateGrid {
+
+        private final double cellLat;
+        private final double cellLng;
+        private final long[] keys;
+        private final Gate[][] cells;
+        private final int mask;
+
+        GateGrid(List<Gate> gates) {
+            double reach = GATE_RADIUS_METERS + LOOKUP_MARGIN_METERS;
+            double maxAbsLat = gates.stream().mapToDouble(gate -> Math.abs(gate.lat())).max().orElse(0);
+            this.cellLat = 2 * reach / METERS_PER_DEGREE;
+            this.cellLng = cellLat / Math.max(0.01, Math.cos(Math.toRadians(maxAbsLat)));
+
+            Map<Long, List<Gate>> byCell = new HashMap<>();
+            for (Gate gate : gates) {
+                double reachLng = reach / (METERS_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(gate.lat()))));
+                long rowFrom = row(gate.lat() - reach / METERS_PER_DEGREE);
+                long rowTo = row(gate.lat() + reach / METERS_PER_DEGREE);
+                long columnFrom = column(gate.lng() - reachLng);
+                long columnTo = column(gate.lng() + reachLng);
+                for (long row = rowFrom; row <= rowTo; row++) {
+                    for (long column = columnFrom; column <= columnTo; column++) {
+                        byCell.computeIfAbsent(key(row, column), cell -> new ArrayList<>()).add(gate);
+                    }
+                }
+            }
+
+            int capacity = Integer.highestOneBit(Math.max(4, byCell.size() * 4) - 1) << 1; // Load factor of at most 1/2
+            this.keys = new long[capacity];
+            this.cells = new Gate[capacity][];
+            this.mask = capacity - 1;
+            for (Map.Entry<Long, List<Gate>> cell : byCell.entrySet()) {
+                int slot = slot(cell.getKey());
+                while (cells[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = cell.getKey();
+                cells[slot] = cell.getValue().toArray(new Gate[0]);
+            }
+        }
+
+        Gate[] get(double lat, double lng) {
+            long key = key(row(lat), column(lng));
+            for (int slot = slot(key); cells[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return cells[slot];
+                }
+            }
+            return null;
+        }
+
+        private long row(double lat) {
+            return (long) Math.floor(lat / cellLat);
+        }
+
+        private long column(double lng) {
+            return (long) Math.floor(lng / cellLng);
+        }
+
+        private static long key(long row, long column) {
+            return (row << 32) ^ (column & 0xFFFFFFFFL);
+        }
+
+        private int slot(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        }
+    }
+}
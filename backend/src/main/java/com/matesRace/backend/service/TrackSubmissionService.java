@@ -0,0 +1,137 @@
+package com.matesRace.backend.service;
+
+import com.matesRace.backend.dto.ParticipantSegmentResultDTO;
+import com.matesRace.backend.dto.TrackSubmissionResultDTO;
+import com.matesRace.backend.model.Participant;
+import com.matesRace.backend.model.ParticipantSegmentResult;
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.model.Segment;
+import com.matesRace.backend.repository.ParticipantRepository;
+import com.matesRace.backend.repository.ParticipantSegmentResultRepository;
+import com.matesRace.backend.repository.RaceRepository;
+import com.matesRace.backend.repository.SegmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Race submissions from GPX or FIT files, for riders without Strava or out of API quota.
+ * The file is decoded as it streams in ({@link #readTrack}, outside any transaction) and scored
+ * against the race's segments in the local catalogue ({@link #submitTrack}) with {@link TrackSegmentMatcher};
+ * Strava is never called.
+ */
+@Service
+public class TrackSubmissionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrackSubmissionService.class);
+
+    private final RaceRepository raceRepository;
+    private final ParticipantRepository participantRepository;
+    private final ParticipantSegmentResultRepository segmentResultRepository;
+    private final SegmentRepository segmentRepository;
+    private final RaceFinalizationService raceFinalizationService;
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    @Value("${matesrace.tracks.max-points:200000}")
+    private int maxPoints;
+
+    public TrackSubmissionService(RaceRepository raceRepository,
+                                  ParticipantRepository participantRepository,
+                                  ParticipantSegmentResultRepository segmentResultRepository,
+                                  SegmentRepository segmentRepository,
+                                  RaceFinalizationService raceFinalizationService,
+                                  CacheInvalidationBus cacheInvalidationBus) {
+        this.raceRepository = raceRepository;
+        this.participantRepository = participantRepository;
+        this.segmentResultRepository = segmentResultRepository;
+        this.segmentRepository = segmentRepository;
+        this.raceFinalizationService = raceFinalizationService;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
+
+    // The format is sniffed rather than trusted from the Content-Type; .gpx.gz and .fit.gz (Strava bulk exports) work too
+    public TrackPoints readTrack(InputStream body) throws IOException {
+        InputStream in = new BufferedInputStream(body);
+        byte[] head = peek(in);
+        if (head.length >= 2 && (head[0] & 0xFF) == 0x1F && (head[1] & 0xFF) == 0x8B) {
+            in = new BufferedInputStream(new GZIPInputStream(in));
+            head = peek(in);
+        }
+        TrackPoints track = new TrackPoints(maxPoints);
+        if (FitTrackReader.isFit(head, head.length)) {
+            FitTrackReader.read(in, track);
+        } else {
+            GpxTrackReader.read(in, track);
+        }
+        if (track.size() < 2) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The file has no timed track points.");
+        }
+        return track;
+    }
+
+    @Transactional
+    public TrackSubmissionResultDTO submitTrack(long userStravaId, Long raceId, TrackPoints track) {
+        Participant participant = participantRepository.findByRaceIdAndUserStravaId(raceId, userStravaId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not a participant in this race."));
+        Race race = participant.getRace();
+        if (track.startTime().isBefore(race.getStartDate()) || track.startTime().isAfter(race.getEndDate())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The track was not recorded during the race.");
+        }
+
+        long[] raceSegmentIds = race.getSegmentIds() != null ? race.getSegmentIds() : new long[0];
+        List<Segment> segments = segmentRepository.findAllById(Arrays.stream(raceSegmentIds).boxed().toList());
+        List<Long> withoutGeometry = Arrays.stream(raceSegmentIds)
+                .filter(id -> segments.stream().noneMatch(segment -> segment.getId() == id))
+                .boxed()
+                .toList();
+
+        List<ParticipantSegmentResult> matchedResults = new TrackSegmentMatcher(segments).match(track, participant);
+        if (matchedResults.isEmpty()) {
+            // Unlike a Strava resubmission, an empty match leaves earlier results alone
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, withoutGeometry.isEmpty()
+                    ? "None of the race segments were ridden in this track."
+                    : "None of the race segments were found in this track; segments " + withoutGeometry
+                    + " are not in the segment catalogue yet.");
+        }
+
+        int replacedResults = segmentResultRepository.deleteByParticipantId(participant.getId());
+        if (replacedResults > 0) {
+            logger.debug("Deleted {} existing segment results for participant {}", replacedResults, participant.getId());
+        }
+        if (participantRepository.markSubmitted(participant.getId()) == 1) {
+            raceRepository.adjustSubmittedCount(raceId, 1); // Re-submissions don't count twice
+        }
+        participant.setSubmittedRide(true);
+        participant.setSubmittedActivityId(null); // Not a Strava activity
+        participantRepository.save(participant);
+        segmentResultRepository.saveAll(matchedResults);
+        raceFinalizationService.invalidate(raceId);
+        cacheInvalidationBus.raceChanged(raceId);
+
+        logger.info("Scored uploaded track ({} points) for user {} in race {}: {} of {} segments matched.",
+                track.size(), userStravaId, raceId, matchedResults.size(), raceSegmentIds.length);
+        return new TrackSubmissionResultDTO(track.size(), track.startTime(), track.endTime(),
+                matchedResults.stream()
+                        .map(result -> new ParticipantSegmentResultDTO(result.getSegmentId(), result.getSegmentName(), result.getElapsedTimeSeconds()))
+                        .toList(),
+                withoutGeometry);
+    }
+
+    private static byte[] peek(InputStream in) throws IOException {
+        in.mark(16);
+        byte[] head = in.readNBytes(12);
+        in.reset();
+        return head;
+    }
+}
@@ -0,0 +1,132 @@
+package com.matesRace.backend.service;
+
+import com.matesRace.backend.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies Strava profile attributes (name, picture, sex, location) seen at login in the
+ * background, so the login request itself only writes the token upsert.
+ * <p>
+ * Pending profiles are kept per user (a second login before the flush replaces the first)
+ * and written as one JDBC batch; rows whose values didn't change are left untouched.
+ */
+@Service
+public class UserProfileSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserProfileSyncService.class);
+
+    private static final String UPDATE_IF_CHANGED_SQL = """
+            UPDATE users
+            SET user_strava_first_name = ?, user_strava_last_name = ?, user_strava_pic = ?,
+                user_sex = ?, user_city = ?, user_state = ?, user_country = ?
+            WHERE strava_id = ?
+              AND (user_strava_first_name IS DISTINCT FROM ? OR user_strava_last_name IS DISTINCT FROM ?
+                   OR user_strava_pic IS DISTINCT FROM ? OR user_sex IS DISTINCT FROM ?
+                   OR user_city IS DISTINCT FROM ? OR user_state IS DISTINCT FROM ?
+                   OR user_country IS DISTINCT FROM ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final Map<Long, Profile> pending = new ConcurrentHashMap<>();
+
+    public UserProfileSyncService(JdbcTemplate jdbcTemplate,
+                                  EntityManagerFactory entityManagerFactory,
+                                  CacheInvalidationBus cacheInvalidationBus) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+    }
+
+    public void enqueue(Profile profile) {
+        pending.put(profile.getStravaId(), profile);
+    }
+
+    @Scheduled(fixedDelayString = "${matesrace.profile-sync.interval:PT5S}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Profile> batch = new ArrayList<>(pending.size());
+        for (Long stravaId : new ArrayList<>(pending.keySet())) {
+            Profile profile = pending.remove(stravaId);
+            if (profile != null) {
+                batch.add(profile);
+            }
+        }
+
+        int[] counts;
+        try {
+            counts = jdbcTemplate.batchUpdate(UPDATE_IF_CHANGED_SQL, batch, batch.size(), (ps, p) -> {
+                ps.setString(1, p.getFirstName());
+                ps.setString(2, p.getLastName());
+                ps.setString(3, p.getPicture());
+                ps.setString(4, p.getSex());
+                ps.setString(5, p.getCity());
+                ps.setString(6, p.getState());
+                ps.setString(7, p.getCountry());
+                ps.setLong(8, p.getStravaId());
+                ps.setString(9, p.getFirstName());
+                ps.setString(10, p.getLastName());
+                ps.setString(11, p.getPicture());
+                ps.setString(12, p.getSex());
+                ps.setString(13, p.getCity());
+                ps.setString(14, p.getState());
+                ps.setString(15, p.getCountry());
+            })[0];
+        } catch (Exception e) {
+            logger.error("Failed to sync {} user profile(s): {}", batch.size(), e.getMessage(), e);
+            return;
+        }
+
+        int changed = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                Long stravaId = batch.get(i).getStravaId();
+                entityManagerFactory.getCache().evict(User.class, stravaId);
+                cacheInvalidationBus.userChanged(stravaId);
+                changed++;
+            }
+        }
+        logger.debug("Profile sync: {} queued, {} changed.", batch.size(), changed);
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Profile {
+        private Long stravaId;
+        private String firstName;
+        private String lastName;
+        private String picture;
+        private String sex;
+        private String city;
+        private String state;
+        private String country;
+
+        // Attribute names as returned by Strava's /athlete endpoint
+        public static Profile fromStravaAttributes(Map<String, Object> attributes) {
+            return new Profile(
+                    Long.valueOf(String.valueOf(attributes.get("id"))),
+                    (String) attributes.get("firstname"),
+                    (String) attributes.get("lastname"),
+                    (String) attributes.get("profile_medium"), // Or "profile" for larger
+                    (String) attributes.get("sex"), // Typically 'M' or 'F'
+                    (String) attributes.get("city"),
+                    (String) attributes.get("state"),
+                    (String) attributes.get("country"));
+        }
+    }
+}
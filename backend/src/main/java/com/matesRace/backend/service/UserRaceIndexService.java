@@ -0,0 +1,117 @@
+package com.matesRace.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Maintains {@code user_race_index}, the per-user rows behind the "my races" dashboard.
+ * <p>
+ * Every change to a race already goes through {@link CacheInvalidationBus#raceChanged}, which marks the
+ * race in {@code user_race_index_pending} inside the changing transaction. The sweep rebuilds each marked
+ * race's rows in one set-based statement, so a burst of submissions to one race costs a single rebuild,
+ * and a marker left by a crash or a failed rebuild is picked up by the next sweep on any node.
+ */
+@Service
+public class UserRaceIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserRaceIndexService.class);
+
+    // Rank follows LeaderboardRanker: submitted riders with a time on every race segment (the first
+    // result per segment counts), fastest total first, ties in participant order.
+    private static final String REBUILD_SQL = """
+            INSERT INTO user_race_index (user_strava_id, race_id, organiser, participant_id, submitted,
+                                         total_time_seconds, overall_rank, ranked_count, refreshed_at)
+            WITH target AS (
+                SELECT id, organiser_strava_id, segment_ids FROM races WHERE %s
+            ), firsts AS (
+                SELECT DISTINCT ON (psr.participant_id, psr.segment_id)
+                       psr.participant_id, psr.segment_id, psr.elapsed_time_seconds
+                FROM participant_segment_results psr
+                JOIN participants p ON p.id = psr.participant_id
+                JOIN target t ON t.id = p.race_id
+                ORDER BY psr.participant_id, psr.segment_id, psr.id
+            ), totals AS (
+                SELECT p.id AS participant_id, p.race_id, p.user_strava_id, p.submitted_ride,
+                       CASE WHEN p.submitted_ride
+                                 AND cardinality(t.segment_ids) > 0
+                                 AND COUNT(f.elapsed_time_seconds) = cardinality(t.segment_ids)
+                            THEN SUM(f.elapsed_time_seconds) END AS total
+                FROM participants p
+                JOIN target t ON t.id = p.race_id
+                LEFT JOIN firsts f ON f.participant_id = p.id AND f.segment_id = ANY (t.segment_ids)
+                WHERE p.user_strava_id IS NOT NULL
+                GROUP BY p.id, p.race_id, p.user_strava_id, p.submitted_ride, t.segment_ids
+            ), ranked AS (
+                SELECT totals.*,
+                       CASE WHEN total IS NOT NULL
+                            THEN ROW_NUMBER() OVER (PARTITION BY race_id ORDER BY total NULLS LAST, participant_id) END AS overall_rank,
+                       COUNT(total) OVER (PARTITION BY race_id) AS ranked_count
+                FROM totals
+            )
+            SELECT rk.user_strava_id, rk.race_id, rk.user_strava_id = t.organiser_strava_id, rk.participant_id,
+                   rk.submitted_ride, rk.total, rk.overall_rank, rk.ranked_count, now()
+            FROM ranked rk JOIN target t ON t.id = rk.race_id
+            UNION ALL
+            SELECT t.organiser_strava_id, t.id, true, NULL, false, NULL, NULL,
+                   COALESCE((SELECT MAX(rk.ranked_count) FROM ranked rk WHERE rk.race_id = t.id), 0), now()
+            FROM target t
+            WHERE t.organiser_strava_id IS NOT NULL
+              AND NOT EXISTS (SELECT 1 FROM ranked rk WHERE rk.race_id = t.id AND rk.user_strava_id = t.organiser_strava_id)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final int SWEEP_BATCH = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public UserRaceIndexService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Joins the caller's transaction, so the marker commits or rolls back with the change it stands for
+    public void markPending(Long raceId) {
+        jdbcTemplate.update("INSERT INTO user_race_index_pending (race_id, marked_at) VALUES (?, now()) ON CONFLICT DO NOTHING", raceId);
+    }
+
+    @Scheduled(fixedDelayString = "${matesrace.dashboard-index.interval:PT2S}")
+    public void refreshPending() {
+        List<Long> raceIds = jdbcTemplate.queryForList(
+                "SELECT race_id FROM user_race_index_pending ORDER BY marked_at LIMIT ?", Long.class, SWEEP_BATCH);
+        for (Long raceId : raceIds) {
+            try {
+                refreshRace(raceId);
+            } catch (Exception e) {
+                logger.warn("Failed to refresh the dashboard index for race {}, retrying on the next sweep: {}", raceId, e.getMessage());
+            }
+        }
+    }
+
+    // Replaces the rows of one race; a deleted race just loses its rows. The marker is deleted first: a change
+    // committing later in this transaction waits on that row lock and marks the race again once we commit.
+    public void refreshRace(Long raceId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM user_race_index_pending WHERE race_id = ?", raceId);
+            jdbcTemplate.update("DELETE FROM user_race_index WHERE race_id = ?", raceId);
+            jdbcTemplate.update(REBUILD_SQL.formatted("id = ?"), raceId);
+        });
+    }
+
+    // Rebuilds the whole index, for backfills and after bulk loads that bypass the entities
+    public int rebuildAll() {
+        Integer rows = transactionTemplate.execute(status -> {
+            jdbcTemplate.update("DELETE FROM user_race_index_pending");
+            jdbcTemplate.update("DELETE FROM user_race_index");
+            return jdbcTemplate.update(REBUILD_SQL.formatted("TRUE"));
+        });
+        return rows != null ? rows : 0;
+    }
+}
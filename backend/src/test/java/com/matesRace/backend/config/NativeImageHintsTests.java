@@ -0,0 +1,58 @@
+package com.matesRace.backend.config;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.matesRace.backend.dto.RaceResponseDTO;
+import com.matesRace.backend.dto.RaceSummaryDTO;
+import com.matesRace.backend.model.Participant;
+import com.matesRace.backend.model.ParticipantSegmentResult;
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.model.User;
+import net.ttddyy.dsproxy.proxy.ProxyJdbcObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The native image only sees what these hints declare, so a missing entity or DTO fails at runtime, not at build time
+class NativeImageHintsTests {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    @BeforeEach
+    void register() {
+        new NativeImageHints.Registrar().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void entitiesAreFullyReflective() {
+        for (Class<?> entity : new Class<?>[]{Race.class, Participant.class, User.class, ParticipantSegmentResult.class}) {
+            assertThat(RuntimeHintsPredicates.reflection().onType(entity).withMemberCategory(MemberCategory.DECLARED_FIELDS))
+                    .as(entity.getSimpleName()).accepts(hints);
+        }
+    }
+
+    @Test
+    void dtosAreRegisteredForJacksonBinding() throws Exception {
+        // Read back from gzipped snapshots with a plain ObjectMapper, outside of any controller signature
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(RaceResponseDTO.class.getMethod("getParticipants"))).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(RaceSummaryDTO.class)).accepts(hints);
+    }
+
+    @Test
+    void cacheProviderAndConfigAreReachable() {
+        assertThat(RuntimeHintsPredicates.reflection().onType(CaffeineCachingProvider.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("application.conf")).accepts(hints);
+    }
+
+    @Test
+    void statementCountingProxiesAreDeclared() {
+        assertThat(RuntimeHintsPredicates.proxies().forInterfaces(ProxyJdbcObject.class, Connection.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.proxies().forInterfaces(ProxyJdbcObject.class, PreparedStatement.class)).accepts(hints);
+    }
+}
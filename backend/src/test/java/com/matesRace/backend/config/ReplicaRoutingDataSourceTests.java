@@ -0,0 +1,106 @@
+package com.matesRace.backend.config;
+
+import com.matesRace.backend.support.RequiresPostgres;
+import com.matesRace.backend.support.TestPostgres;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Two separate Postgres databases stand in for the primary and its replica; current_database() tells them apart
+@RequiresPostgres
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReplicaRoutingDataSourceTests {
+
+    private final DataSourceRoutingConfig config = new DataSourceRoutingConfig();
+    private HikariDataSource primaryPool;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeAll
+    void routeAcrossPrimaryAndReplica() throws Exception {
+        TestPostgres.Database primary = TestPostgres.database(TestPostgres.PRIMARY);
+        TestPostgres.Database replica = TestPostgres.database("replica");
+
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(primary.url());
+        properties.setUsername(primary.username());
+        properties.setPassword(primary.password());
+        properties.afterPropertiesSet();
+        ReplicaDataSourceProperties replicaProperties = new ReplicaDataSourceProperties();
+        replicaProperties.setReplicaUrls(List.of(replica.url()));
+        replicaProperties.setReplicaUsername(replica.username());
+        replicaProperties.setReplicaPassword(replica.password());
+        replicaProperties.setReadYourWritesWindow(Duration.ofMinutes(1));
+
+        primaryPool = config.primaryDataSource(properties);
+        DataSource dataSource = config.dataSource(primaryPool, properties, replicaProperties);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void signOut() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @AfterAll
+    void closePools() {
+        config.destroy();
+        primaryPool.close();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+        signIn("reader");
+        assertThat(databaseIn(readOnly)).endsWith("replica");
+    }
+
+    @Test
+    void writesGoToThePrimary() {
+        signIn("writer");
+        String written = readWrite.execute(status -> {
+            jdbcTemplate.execute("CREATE TEMPORARY TABLE routing_probe (id int) ON COMMIT DROP");
+            jdbcTemplate.update("INSERT INTO routing_probe VALUES (1)");
+            return jdbcTemplate.queryForObject("SELECT current_database()", String.class);
+        });
+        assertThat(written).endsWith(TestPostgres.PRIMARY);
+    }
+
+    @Test
+    void aWriterReadsTheirOwnWritesFromThePrimaryWithinTheWindow() {
+        signIn("rider");
+        readWrite.executeWithoutResult(status -> jdbcTemplate.queryForObject("SELECT 1", Integer.class));
+        assertThat(databaseIn(readOnly)).endsWith(TestPostgres.PRIMARY);
+
+        // Only that user: everyone else keeps reading from the replica
+        signIn("someone-else");
+        assertThat(databaseIn(readOnly)).endsWith("replica");
+    }
+
+    private String databaseIn(TransactionTemplate transaction) {
+        return transaction.execute(status -> jdbcTemplate.queryForObject("SELECT current_database()", String.class));
+    }
+
+    private static void signIn(String name) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(name, null));
+    }
+}
@@ -0,0 +1,137 @@
+package com.matesRace.backend.config;
+
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.model.User;
+import com.matesRace.backend.repository.RaceRepository;
+import com.matesRace.backend.repository.UserRepository;
+import com.matesRace.backend.support.RequiresPostgres;
+import com.matesRace.backend.support.TestPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Startup migrations against data in the shapes older versions of the schema left behind
+@SpringBootTest(properties = {
+        "spring.security.oauth2.client.registration.strava.client-id=test",
+        "spring.security.oauth2.client.registration.strava.client-secret=test",
+        "frontend.url=http://localhost"
+})
+@AutoConfigureMockMvc
+@RequiresPostgres
+class SchemaMaintenanceRunnerTests {
+
+    private static final long ORGANISER_ID = 4_000_000L;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestPostgres.registerDataSource(registry);
+    }
+
+    @Autowired
+    private SchemaMaintenanceRunner schemaMaintenanceRunner;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RaceRepository raceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void aRaceMigratedFromTheSegmentIdsTableCanBeDeleted() throws Exception {
+        Long raceId = raceWithoutInlineSegmentIds();
+        // The element-collection table as Hibernate created it, foreign key included
+        jdbcTemplate.execute("CREATE TABLE race_segment_ids (race_id bigint NOT NULL REFERENCES races (id), segment_id bigint)");
+        jdbcTemplate.update("INSERT INTO race_segment_ids (race_id, segment_id) VALUES (?, 11), (?, 22)", raceId, raceId);
+
+        schemaMaintenanceRunner.run(new DefaultApplicationArguments());
+        entityManagerFactory.getCache().evict(Race.class, raceId); // Migrated behind Hibernate's back
+
+        assertThat(raceRepository.findSummaryById(raceId).orElseThrow().getSegmentIds()).containsExactlyInAnyOrder(11L, 22L);
+        assertThat(jdbcTemplate.queryForObject("SELECT to_regclass('race_segment_ids') IS NULL", Boolean.class)).isTrue();
+
+        mockMvc.perform(delete("/api/races/{id}", raceId)
+                        .with(oauth2Login().oauth2User(new DefaultOAuth2User(List.of(), Map.of("id", ORGANISER_ID), "id"))))
+                .andExpect(status().isNoContent());
+        assertThat(raceRepository.existsById(raceId)).isFalse();
+    }
+
+    @Test
+    void nodesStartingTogetherMigrateTheSegmentIdsOnce() throws Exception {
+        Long raceId = raceWithoutInlineSegmentIds();
+        jdbcTemplate.execute("CREATE TABLE race_segment_ids (race_id bigint NOT NULL REFERENCES races (id), segment_id bigint)");
+        jdbcTemplate.update("INSERT INTO race_segment_ids (race_id, segment_id) VALUES (?, 33)", raceId);
+
+        CyclicBarrier start = new CyclicBarrier(2);
+        Callable<Void> node = () -> {
+            start.await();
+            ReflectionTestUtils.invokeMethod(schemaMaintenanceRunner, "migrateSegmentIdsToArrayColumn");
+            return null;
+        };
+        ExecutorService nodes = Executors.newFixedThreadPool(2);
+        try {
+            for (Future<Void> run : nodes.invokeAll(List.of(node, node), 30, TimeUnit.SECONDS)) {
+                run.get(); // Neither fails on the table the other dropped
+            }
+        } finally {
+            nodes.shutdownNow();
+        }
+        entityManagerFactory.getCache().evict(Race.class, raceId);
+
+        assertThat(raceRepository.findSummaryById(raceId).orElseThrow().getSegmentIds()).containsExactly(33L);
+        assertThat(jdbcTemplate.queryForObject("SELECT to_regclass('race_segment_ids') IS NULL", Boolean.class)).isTrue();
+    }
+
+    private Long raceWithoutInlineSegmentIds() {
+        Long raceId = new TransactionTemplate(transactionManager).execute(status -> {
+            User organiser = userRepository.save(new User(ORGANISER_ID, "Organiser", "Org", "Aniser", null, "M", null, null, null));
+            Race race = new Race();
+            race.setRaceName("Legacy race");
+            race.setOrganiser(organiser);
+            race.setStartDate(Instant.now().minus(1, ChronoUnit.DAYS));
+            race.setEndDate(Instant.now().plus(1, ChronoUnit.DAYS));
+            race.setPassword("secret");
+            return raceRepository.save(race).getId();
+        });
+        jdbcTemplate.update("UPDATE races SET segment_ids = NULL WHERE id = ?", raceId);
+        return raceId;
+    }
+}
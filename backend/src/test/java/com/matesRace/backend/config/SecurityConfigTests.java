@@ -0,0 +1,53 @@
+package com.matesRace.backend.config;
+
+import com.matesRace.backend.support.RequiresPostgres;
+import com.matesRace.backend.support.TestPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Who may read which actuator endpoints
+@SpringBootTest(properties = {
+        "spring.security.oauth2.client.registration.strava.client-id=test",
+        "spring.security.oauth2.client.registration.strava.client-secret=test",
+        "frontend.url=http://localhost"
+})
+@AutoConfigureMockMvc
+@RequiresPostgres
+class SecurityConfigTests {
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestPostgres.registerDataSource(registry);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void spansAndMetricsAreForOpsOnly() throws Exception {
+        mockMvc.perform(get("/actuator/spans").with(oauth2Login())).andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/metrics").with(oauth2Login())).andExpect(status().isForbidden());
+
+        mockMvc.perform(get("/actuator/spans").with(oauth2Login().authorities(new SimpleGrantedAuthority("ROLE_OPS"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics").with(oauth2Login().authorities(new SimpleGrantedAuthority("ROLE_OPS"))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void probesStayOpen() throws Exception {
+        // Prometheus export is off in tests, so only the probes and info are checked here
+        mockMvc.perform(get("/actuator/health/liveness")).andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/info")).andExpect(status().isOk());
+    }
+}
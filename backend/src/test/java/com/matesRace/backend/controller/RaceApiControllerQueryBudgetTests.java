@@ -0,0 +1,247 @@
+package com.matesRace.backend.controller;
+
+import com.matesRace.backend.config.SqlStatementCounter;
+import com.matesRace.backend.model.Participant;
+import com.matesRace.backend.model.ParticipantSegmentResult;
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.model.User;
+import com.matesRace.backend.repository.ParticipantRepository;
+import com.matesRace.backend.repository.RaceRepository;
+import com.matesRace.backend.repository.UserRepository;
+import com.matesRace.backend.service.UserRaceIndexService;
+import com.matesRace.backend.support.RequiresPostgres;
+import com.matesRace.backend.support.TestPostgres;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.matesRace.backend.support.SqlStatementBudget.performWithin;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// SQL budgets for the read endpoints: the statement count must not grow with the number of participants.
+// Counted at the DataSource, so Hibernate and JdbcTemplate statements alike.
+@SpringBootTest(properties = {
+        "spring.security.oauth2.client.registration.strava.client-id=test",
+        "spring.security.oauth2.client.registration.strava.client-secret=test",
+        "frontend.url=http://localhost"
+})
+@AutoConfigureMockMvc
+@RequiresPostgres
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RaceApiControllerQueryBudgetTests {
+
+    private static final int PARTICIPANTS = 500;
+    private static final long ORGANISER_ID = 1_000_000L;
+    private static final long FIRST_RIDER_ID = 2_000_000L;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestPostgres.registerDataSource(registry);
+    }
+
+    private static volatile CompletableFuture<Long> streamedStatements = new CompletableFuture<>();
+
+    // Streaming bodies are written on an async thread; count the statements there separately
+    @TestConfiguration
+    static class CountStreamedStatements implements WebMvcConfigurer {
+        @Override
+        public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("stream-");
+            executor.setTaskDecorator(task -> () -> {
+                SqlStatementCounter.reset();
+                try {
+                    task.run();
+                } finally {
+                    streamedStatements.complete(SqlStatementCounter.current());
+                }
+            });
+            configurer.setTaskExecutor(executor);
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RaceRepository raceRepository;
+
+    @Autowired
+    private ParticipantRepository participantRepository;
+
+    @Autowired
+    private UserRaceIndexService userRaceIndexService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long raceId;
+
+    @BeforeAll
+    void seedRace() {
+        raceId = new TransactionTemplate(transactionManager).execute(status -> {
+            User organiser = userRepository.save(new User(ORGANISER_ID, "Organiser", "Org", "Aniser", null, "M", null, null, null));
+
+            Race race = new Race();
+            race.setRaceName("Budget race");
+            race.setOrganiser(organiser);
+            race.setStartDate(Instant.now().minus(1, ChronoUnit.DAYS));
+            race.setEndDate(Instant.now().plus(1, ChronoUnit.DAYS)); // Still running, so no snapshot is served
+            race.setSegmentIds(new long[]{11L, 22L});
+            race.setPrivate(true);
+            race.setParticipantCount(PARTICIPANTS);
+            race = raceRepository.save(race);
+
+            List<Participant> participants = new ArrayList<>();
+            for (int i = 0; i < PARTICIPANTS; i++) {
+                User user = userRepository.save(new User(FIRST_RIDER_ID + i, "Rider " + i, "Rider", String.valueOf(i), null, i % 2 == 0 ? "M" : "F", null, null, null));
+                Participant participant = new Participant();
+                participant.setRace(race);
+                participant.setUser(user);
+                participant.setSubmittedRide(true);
+                for (long segmentId : race.getSegmentIds()) {
+                    ParticipantSegmentResult result = new ParticipantSegmentResult();
+                    result.setParticipant(participant);
+                    result.setSegmentId(segmentId);
+                    result.setSegmentName("Segment " + segmentId);
+                    result.setElapsedTimeSeconds(600 + i);
+                    participant.getSegmentResults().add(result);
+                }
+                participants.add(participant);
+            }
+            participantRepository.saveAll(participants);
+            return race.getId();
+        });
+        userRaceIndexService.refreshRace(raceId);
+    }
+
+    @Test
+    void raceDetailStaysWithinBudgetRegardlessOfParticipants() throws Exception {
+        performWithin(mockMvc, 3, get("/api/races/{id}", raceId).with(rider(FIRST_RIDER_ID)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.participants.length()").value(PARTICIPANTS));
+    }
+
+    @Test
+    void raceBatchIsThreeQueriesRegardlessOfRaces() throws Exception {
+        // Snapshot lookup, race graphs, segment results; the unknown id costs nothing extra
+        performWithin(mockMvc, 3, get("/api/races/batch").param("ids", String.valueOf(raceId), "999999999").with(rider(FIRST_RIDER_ID)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].participants.length()").value(PARTICIPANTS));
+    }
+
+    @Test
+    void raceListIsASingleQuery() throws Exception {
+        performWithin(mockMvc, 1, get("/api/races").with(rider(FIRST_RIDER_ID)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void participatingRacesIsASingleQuery() throws Exception {
+        performWithin(mockMvc, 1, get("/api/races/participating").with(rider(FIRST_RIDER_ID)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void raceSearchIsTwoQueries() throws Exception {
+        // Matching ids, then that page of races with their organisers
+        performWithin(mockMvc, 2, get("/api/races/search").param("q", "budg").with(rider(FIRST_RIDER_ID)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.races.length()").value(1))
+                .andExpect(jsonPath("$.races[0].id").value(raceId));
+    }
+
+    @Test
+    void raceSearchByOrganiserNameIsTwoQueries() throws Exception {
+        // Other test classes' organisers share the name, so only this race being among the hits is checked
+        performWithin(mockMvc, 2, get("/api/races/search").param("q", "aniser").with(rider(FIRST_RIDER_ID)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.races[*].id", hasItem(raceId.intValue())));
+    }
+
+    @Test
+    void dashboardIsASingleQuery() throws Exception {
+        performWithin(mockMvc, 1, get("/api/races/dashboard").with(rider(FIRST_RIDER_ID)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].status").value("ongoing"))
+                .andExpect(jsonPath("$[0].rank").value(1))
+                .andExpect(jsonPath("$[0].rankedCount").value(PARTICIPANTS));
+    }
+
+    @Test
+    void resultsCsvStreamsOneRowPerParticipant() throws Exception {
+        // At most the race row on the request thread (no participants); segment ids, segment names and one cursor over every row while the body is written
+        streamedStatements = new CompletableFuture<>();
+        MvcResult started = performWithin(mockMvc, 1, get("/api/races/{id}/results.csv", raceId).with(rider(FIRST_RIDER_ID)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        List<String> lines = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().lines().toList();
+        assertEquals(PARTICIPANTS + 1, lines.size());
+        assertTrue(lines.get(1).startsWith("1,"), lines.get(1));
+        long streamed = streamedStatements.get(10, TimeUnit.SECONDS);
+        assertTrue(streamed <= 3, "Writing the results ran " + streamed + " SQL statements, budget is 3");
+    }
+
+    @Test
+    void resultsImportDryRunValidatesEveryRowWithoutWriting() throws Exception {
+        // At most the race row (no participants), then the staging table, two rejections, four merges and the recount; COPY is not a statement
+        StringBuilder csv = new StringBuilder("strava_id,Segment 11,Segment 22\n");
+        for (int i = 0; i < PARTICIPANTS; i++) {
+            csv.append(FIRST_RIDER_ID + i).append(",10:00,").append(601 + i).append('\n');
+        }
+        csv.append("999999,600,600\n").append(FIRST_RIDER_ID).append(",nope,600\n");
+        performWithin(mockMvc, 9, post("/api/races/{id}/import", raceId).param("dryRun", "true")
+                .contentType("text/csv").content(csv.toString()).with(rider(ORGANISER_ID)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rowsRead").value(PARTICIPANTS + 2))
+                .andExpect(jsonPath("$.participantsUpdated").value(PARTICIPANTS))
+                .andExpect(jsonPath("$.segmentResultsWritten").value(2 * PARTICIPANTS))
+                .andExpect(jsonPath("$.errorCount").value(2))
+                .andExpect(jsonPath("$.errors[0].line").value(PARTICIPANTS + 2))
+                .andExpect(jsonPath("$.errors[1].line").value(PARTICIPANTS + 3));
+        assertEquals(PARTICIPANTS, raceRepository.findById(raceId).orElseThrow().getParticipantCount());
+    }
+
+    private static RequestPostProcessor rider(long stravaId) {
+        return oauth2Login().oauth2User(new DefaultOAuth2User(List.of(), Map.of("id", stravaId), "id"));
+    }
+}
@@ -0,0 +1,201 @@
+package com.matesRace.backend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matesRace.backend.dto.LeaderboardDTO;
+import com.matesRace.backend.dto.ParticipantSegmentResultDTO;
+import com.matesRace.backend.dto.RaceResultRowDTO;
+import com.matesRace.backend.model.Participant;
+import com.matesRace.backend.model.ParticipantSegmentResult;
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.model.User;
+import com.matesRace.backend.repository.ParticipantRepository;
+import com.matesRace.backend.repository.RaceRepository;
+import com.matesRace.backend.repository.UserRepository;
+import com.matesRace.backend.support.RequiresPostgres;
+import com.matesRace.backend.support.TestPostgres;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The results export of a running race whose leaderboard is hidden until the finish, against GET /{id}/leaderboard
+@SpringBootTest(properties = {
+        "spring.security.oauth2.client.registration.strava.client-id=test",
+        "spring.security.oauth2.client.registration.strava.client-secret=test",
+        "frontend.url=http://localhost"
+})
+@AutoConfigureMockMvc
+@RequiresPostgres
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RaceResultsExportTests {
+
+    private static final long ORGANISER_ID = 10_000_000L;
+    private static final long SLOWER_RIDER_ID = 10_000_001L; // 600 + 700
+    private static final long FASTER_RIDER_ID = 10_000_002L; // 500 + 600
+    private static final long UNFINISHED_RIDER_ID = 10_000_003L; // Segment 11 only
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestPostgres.registerDataSource(registry);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RaceRepository raceRepository;
+
+    @Autowired
+    private ParticipantRepository participantRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long raceId;
+
+    @BeforeAll
+    void seedRace() {
+        raceId = new TransactionTemplate(transactionManager).execute(status -> {
+            User organiser = userRepository.save(new User(ORGANISER_ID, "Organiser", "Org", "Aniser", null, "F", null, null, null));
+
+            Race race = new Race();
+            race.setRaceName("Hidden leaderboard race");
+            race.setOrganiser(organiser);
+            race.setStartDate(Instant.now().minus(1, ChronoUnit.DAYS));
+            race.setEndDate(Instant.now().plus(1, ChronoUnit.DAYS));
+            race.setSegmentIds(new long[]{11L, 22L});
+            race.setHideLeaderboardUntilFinish(true);
+            race.setPassword("secret");
+            race.setParticipantCount(3);
+            race = raceRepository.save(race);
+
+            addRider(race, SLOWER_RIDER_ID, 600, 700);
+            addRider(race, FASTER_RIDER_ID, 500, 600);
+            addRider(race, UNFINISHED_RIDER_ID, 550);
+            return race.getId();
+        });
+    }
+
+    @Test
+    void aRiderSeesOnlyTheirOwnTimesAndRank() throws Exception {
+        List<RaceResultRowDTO> rows = export(SLOWER_RIDER_ID);
+
+        assertThat(rows).hasSize(3);
+        for (RaceResultRowDTO row : rows) {
+            if (row.getUser().getStravaId() == SLOWER_RIDER_ID) {
+                assertThat(row.getRank()).isEqualTo(1);
+                assertThat(row.getTotalTimeSeconds()).isEqualTo(1300);
+                assertThat(times(row)).containsExactly(600, 700);
+            } else {
+                assertThat(row.getRank()).isNull();
+                assertThat(row.getTotalTimeSeconds()).isNull();
+                assertThat(times(row)).containsOnlyNulls();
+            }
+        }
+        assertThat(ranking(rows)).isEqualTo(ranking(leaderboard(SLOWER_RIDER_ID)));
+    }
+
+    @Test
+    void theOrganiserSeesEveryTime() throws Exception {
+        List<RaceResultRowDTO> rows = export(ORGANISER_ID);
+
+        assertThat(rows).extracting(row -> row.getUser().getStravaId())
+                .containsExactly(FASTER_RIDER_ID, SLOWER_RIDER_ID, UNFINISHED_RIDER_ID); // Ranked first, in rank order
+        assertThat(rows).extracting(RaceResultRowDTO::getRank).containsExactly(1, 2, null);
+        assertThat(times(rows.get(0))).containsExactly(500, 600);
+        assertThat(times(rows.get(1))).containsExactly(600, 700);
+        assertThat(times(rows.get(2))).containsExactly(550, null);
+        assertThat(ranking(rows)).isEqualTo(ranking(leaderboard(ORGANISER_ID)));
+    }
+
+    private void addRider(Race race, long stravaId, Integer... times) {
+        User user = userRepository.save(new User(stravaId, "Rider " + stravaId, "Rider", String.valueOf(stravaId), null, "M", null, null, null));
+        Participant participant = new Participant();
+        participant.setRace(race);
+        participant.setUser(user);
+        participant.setSubmittedRide(true);
+        for (int i = 0; i < times.length; i++) {
+            ParticipantSegmentResult result = new ParticipantSegmentResult();
+            result.setParticipant(participant);
+            result.setSegmentId(race.getSegmentIds()[i]);
+            result.setSegmentName("Segment " + race.getSegmentIds()[i]);
+            result.setElapsedTimeSeconds(times[i]);
+            participant.getSegmentResults().add(result);
+        }
+        participantRepository.save(participant);
+    }
+
+    private List<RaceResultRowDTO> export(long viewerId) throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/races/{id}/results.ndjson", raceId).with(rider(viewerId)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<RaceResultRowDTO> rows = new ArrayList<>();
+        for (String line : body.lines().toList()) {
+            rows.add(objectMapper.readValue(line, RaceResultRowDTO.class));
+        }
+        return rows;
+    }
+
+    private LeaderboardDTO leaderboard(long viewerId) throws Exception {
+        String body = mockMvc.perform(get("/api/races/{id}/leaderboard", raceId).with(rider(viewerId)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(body, LeaderboardDTO.class);
+    }
+
+    // "rank participant total" per ranked rider, in rank order
+    private static List<String> ranking(List<RaceResultRowDTO> rows) {
+        return rows.stream()
+                .filter(row -> row.getRank() != null)
+                .map(row -> row.getRank() + " " + row.getParticipantId() + " " + row.getTotalTimeSeconds())
+                .toList();
+    }
+
+    private static List<String> ranking(LeaderboardDTO leaderboard) {
+        return leaderboard.getOverall().stream()
+                .map(entry -> entry.getRank() + " " + entry.getParticipantId() + " " + entry.getTotalTimeSeconds())
+                .toList();
+    }
+
+    private static List<Integer> times(RaceResultRowDTO row) {
+        return row.getSegmentResults().stream().map(ParticipantSegmentResultDTO::getElapsedTimeSeconds).toList();
+    }
+
+    private static RequestPostProcessor rider(long stravaId) {
+        return oauth2Login().oauth2User(new DefaultOAuth2User(List.of(), Map.of("id", stravaId), "id"));
+    }
+}
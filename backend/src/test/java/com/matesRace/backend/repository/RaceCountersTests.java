@@ -0,0 +1,84 @@
+package com.matesRace.backend.repository;
+
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.model.User;
+import com.matesRace.backend.support.RequiresPostgres;
+import com.matesRace.backend.support.TestPostgres;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The counter updates against the second-level cache of races
+@SpringBootTest(properties = {
+        "spring.security.oauth2.client.registration.strava.client-id=test",
+        "spring.security.oauth2.client.registration.strava.client-secret=test",
+        "frontend.url=http://localhost"
+})
+@RequiresPostgres
+class RaceCountersTests {
+
+    private static final long ORGANISER_ID = 5_000_000L;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestPostgres.registerDataSource(registry);
+    }
+
+    @Autowired
+    private RaceRepository raceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void aCountReadBeforeTheCommitIsNotLeftInTheCache() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        User organiser = transaction.execute(status ->
+                userRepository.save(new User(ORGANISER_ID, "Organiser", "Org", "Aniser", null, "M", null, null, null)));
+        Long joined = transaction.execute(status -> raceRepository.save(race(organiser, "Joined race")).getId());
+        raceRepository.findSummaryById(joined);
+        Cache cache = entityManagerFactory.getCache();
+        assertThat(cache.contains(Race.class, joined)).isTrue();
+
+        TransactionTemplate concurrentRead = new TransactionTemplate(transactionManager);
+        concurrentRead.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaction.executeWithoutResult(status -> {
+            raceRepository.adjustParticipantCount(joined, 1);
+            assertThat(cache.contains(Race.class, joined)).isFalse();
+            // Another transaction still sees the committed count of 0 and may cache it again
+            concurrentRead.executeWithoutResult(inner -> raceRepository.findSummaryById(joined));
+        });
+
+        assertThat(cache.contains(Race.class, joined)).isFalse();
+        assertThat(raceRepository.findSummaryById(joined).orElseThrow().getParticipantCount()).isEqualTo(1);
+    }
+
+    private static Race race(User organiser, String name) {
+        Race race = new Race();
+        race.setRaceName(name);
+        race.setOrganiser(organiser);
+        race.setStartDate(Instant.now().minus(1, ChronoUnit.DAYS));
+        race.setEndDate(Instant.now().plus(1, ChronoUnit.DAYS));
+        race.setSegmentIds(new long[]{11L});
+        race.setPassword("secret");
+        return race;
+    }
+}
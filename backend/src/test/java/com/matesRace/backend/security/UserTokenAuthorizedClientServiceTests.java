@@ -0,0 +1,126 @@
+package com.matesRace.backend.security;
+
+import com.matesRace.backend.service.CacheInvalidationEvent;
+import com.matesRace.backend.support.RequiresPostgres;
+import com.matesRace.backend.support.TestPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Tokens in the users table: what a login writes, and what a node with an empty cache reads back
+@SpringBootTest(properties = {
+        "spring.security.oauth2.client.registration.strava.client-id=test",
+        "spring.security.oauth2.client.registration.strava.client-secret=test",
+        "frontend.url=http://localhost"
+})
+@RequiresPostgres
+class UserTokenAuthorizedClientServiceTests {
+
+    private static final long FIRST_USER_ID = 9_000_000L;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestPostgres.registerDataSource(registry);
+    }
+
+    @Autowired
+    private UserTokenAuthorizedClientService authorizedClientService;
+
+    @Autowired
+    private ClientRegistrationRepository clientRegistrationRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void aFirstLoginCreatesTheUserWithProfileAndTokens() {
+        long stravaId = FIRST_USER_ID;
+        Instant expiresAt = Instant.now().plus(6, ChronoUnit.HOURS).truncatedTo(ChronoUnit.SECONDS);
+
+        authorizedClientService.saveAuthorizedClient(client(stravaId, "access-1", "refresh-1", expiresAt), login(stravaId));
+
+        Map<String, Object> row = jdbcTemplate.queryForMap("""
+                SELECT display_name, user_strava_first_name, user_strava_last_name, user_sex, user_city,
+                       user_strava_access, user_strava_refresh
+                FROM users WHERE strava_id = ?
+                """, stravaId);
+        assertThat(row).containsEntry("display_name", "Ada Rider")
+                .containsEntry("user_strava_first_name", "Ada")
+                .containsEntry("user_strava_last_name", "Rider")
+                .containsEntry("user_sex", "F")
+                .containsEntry("user_city", "Ghent")
+                .containsEntry("user_strava_access", "access-1")
+                .containsEntry("user_strava_refresh", "refresh-1");
+    }
+
+    @Test
+    void aLoginWithoutARefreshTokenKeepsTheStoredOne() {
+        long stravaId = FIRST_USER_ID + 1;
+        Instant expiresAt = Instant.now().plus(6, ChronoUnit.HOURS).truncatedTo(ChronoUnit.SECONDS);
+        authorizedClientService.saveAuthorizedClient(client(stravaId, "access-1", "refresh-1", expiresAt), login(stravaId));
+
+        authorizedClientService.saveAuthorizedClient(client(stravaId, "access-2", null, expiresAt), login(stravaId));
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT user_strava_access, user_strava_refresh FROM users WHERE strava_id = ?", stravaId);
+        assertThat(row).containsEntry("user_strava_access", "access-2").containsEntry("user_strava_refresh", "refresh-1");
+    }
+
+    @Test
+    void afterARestartTheTokenIsReadBackWithItsUtcExpiry() {
+        long stravaId = FIRST_USER_ID + 2;
+        Instant expiresAt = Instant.parse("2031-03-30T01:30:00Z");
+        TimeZone defaultZone = TimeZone.getDefault();
+        // A zone far from UTC, so a conversion through the JVM's default zone shows up as an hours-off expiry
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        try {
+            authorizedClientService.saveAuthorizedClient(client(stravaId, "access-1", "refresh-1", expiresAt), login(stravaId));
+            eventPublisher.publishEvent(new CacheInvalidationEvent(CacheInvalidationEvent.EntityType.USER, null, true)); // Empty cache, as after a restart
+
+            OAuth2AuthorizedClient loaded = authorizedClientService.loadAuthorizedClient("strava", String.valueOf(stravaId));
+
+            assertThat(loaded).isNotNull();
+            assertThat(loaded.getAccessToken().getTokenValue()).isEqualTo("access-1");
+            assertThat(loaded.getAccessToken().getExpiresAt()).isEqualTo(expiresAt);
+            assertThat(loaded.getRefreshToken()).extracting(OAuth2RefreshToken::getTokenValue).isEqualTo("refresh-1");
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
+    private OAuth2AuthorizedClient client(long stravaId, String access, String refresh, Instant expiresAt) {
+        ClientRegistration registration = clientRegistrationRepository.findByRegistrationId("strava");
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, access,
+                expiresAt.minus(6, ChronoUnit.HOURS), expiresAt);
+        return new OAuth2AuthorizedClient(registration, String.valueOf(stravaId), accessToken,
+                refresh != null ? new OAuth2RefreshToken(refresh, null) : null);
+    }
+
+    private static OAuth2AuthenticationToken login(long stravaId) {
+        DefaultOAuth2User user = new DefaultOAuth2User(List.of(), Map.of(
+                "id", stravaId, "firstname", "Ada", "lastname", "Rider", "sex", "F", "city", "Ghent"), "id");
+        return new OAuth2AuthenticationToken(user, List.of(), "strava");
+    }
+}
@@ -0,0 +1,142 @@
+package com.matesRace.backend.service;
+
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.model.User;
+import com.matesRace.backend.repository.RaceRepository;
+import com.matesRace.backend.repository.UserRepository;
+import com.matesRace.backend.support.RequiresPostgres;
+import com.matesRace.backend.support.TestPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The bus as another node sees it: notifications from other node ids, and a listener that loses its connection
+@SpringBootTest(properties = {
+        "spring.security.oauth2.client.registration.strava.client-id=test",
+        "spring.security.oauth2.client.registration.strava.client-secret=test",
+        "frontend.url=http://localhost"
+})
+@RequiresPostgres
+class CacheInvalidationBusTests {
+
+    private static final long ORGANISER_ID = 8_000_000L;
+    private static final long RIDER_ID = 8_000_001L;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestPostgres.registerDataSource(registry);
+    }
+
+    @Autowired
+    private OAuth2AuthorizedClientService authorizedClientService;
+
+    @Autowired
+    private ClientRegistrationRepository clientRegistrationRepository;
+
+    @Autowired
+    private RaceRepository raceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void aNotificationFromAnotherNodeEvictsTheRaceAndTheToken() throws Exception {
+        Long raceId = cachedRace();
+        cachedTokenChangedBehindTheCache(RIDER_ID, "remote");
+
+        notifyFromAnotherNode("R:" + raceId + ",U:" + RIDER_ID);
+
+        awaitTrue(() -> !entityManagerFactory.getCache().contains(Race.class, raceId), "race evicted");
+        awaitTrue(() -> "remote-new".equals(accessToken(RIDER_ID)), "token reloaded");
+    }
+
+    @Test
+    void aReconnectedListenerDropsEverythingItMayHaveMissed() throws Exception {
+        Long raceId = cachedRace();
+        cachedTokenChangedBehindTheCache(RIDER_ID, "reconnect");
+
+        // No notification is sent: only the reconnect can clear these
+        jdbcTemplate.queryForList("""
+                SELECT pg_terminate_backend(pid) FROM pg_stat_activity
+                WHERE datname = current_database() AND query = 'LISTEN %s'
+                """.formatted(CacheInvalidationBus.CHANNEL));
+
+        awaitTrue(() -> !entityManagerFactory.getCache().contains(Race.class, raceId), "race evicted");
+        awaitTrue(() -> "reconnect-new".equals(accessToken(RIDER_ID)), "token reloaded");
+    }
+
+    private Long cachedRace() {
+        Long raceId = new TransactionTemplate(transactionManager).execute(status -> {
+            User organiser = userRepository.findById(ORGANISER_ID).orElseGet(() ->
+                    userRepository.save(new User(ORGANISER_ID, "Organiser", "Org", "Aniser", null, "M", null, null, null)));
+            Race race = new Race();
+            race.setRaceName("Cached race");
+            race.setOrganiser(organiser);
+            race.setStartDate(Instant.now().minus(1, ChronoUnit.DAYS));
+            race.setEndDate(Instant.now().plus(1, ChronoUnit.DAYS));
+            race.setSegmentIds(new long[]{11L});
+            race.setPassword("secret");
+            return raceRepository.save(race).getId();
+        });
+        raceRepository.findSummaryById(raceId);
+        assertThat(entityManagerFactory.getCache().contains(Race.class, raceId)).isTrue();
+        return raceId;
+    }
+
+    // Caches "<prefix>-old" for the user, then writes "<prefix>-new" straight to the users table
+    private void cachedTokenChangedBehindTheCache(long stravaId, String prefix) {
+        OAuth2AccessToken token = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, prefix + "-old",
+                Instant.now(), Instant.now().plus(6, ChronoUnit.HOURS));
+        authorizedClientService.saveAuthorizedClient(
+                new OAuth2AuthorizedClient(clientRegistrationRepository.findByRegistrationId("strava"), String.valueOf(stravaId), token),
+                new TestingAuthenticationToken(String.valueOf(stravaId), null));
+        assertThat(accessToken(stravaId)).isEqualTo(prefix + "-old");
+        jdbcTemplate.update("UPDATE users SET user_strava_access = ? WHERE strava_id = ?", prefix + "-new", stravaId);
+        assertThat(accessToken(stravaId)).as("served from the token cache").isEqualTo(prefix + "-old");
+    }
+
+    private String accessToken(long stravaId) {
+        OAuth2AuthorizedClient client = authorizedClientService.loadAuthorizedClient("strava", String.valueOf(stravaId));
+        return client != null ? client.getAccessToken().getTokenValue() : null;
+    }
+
+    private void notifyFromAnotherNode(String keys) {
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CacheInvalidationBus.CHANNEL, "another-node|" + keys);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String what) throws InterruptedException {
+        for (int attempt = 0; attempt < 300; attempt++) { // The listener waits 5 s before reconnecting
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Timed out waiting until " + what);
+    }
+}
@@ -0,0 +1,127 @@
+package com.matesRace.backend.service;
+
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.model.User;
+import com.matesRace.backend.repository.RaceRepository;
+import com.matesRace.backend.repository.RaceResultSnapshotRepository;
+import com.matesRace.backend.repository.UserRepository;
+import com.matesRace.backend.support.RequiresPostgres;
+import com.matesRace.backend.support.TestPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The sweep against a submission that commits while a snapshot is being built
+@SpringBootTest(properties = {
+        "spring.security.oauth2.client.registration.strava.client-id=test",
+        "spring.security.oauth2.client.registration.strava.client-secret=test",
+        "frontend.url=http://localhost",
+        "matesrace.finalization.initial-delay=PT1H" // Sweeps only when the test says so
+})
+@RequiresPostgres
+class RaceFinalizationServiceTests {
+
+    private static final long ORGANISER_ID = 3_000_000L;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestPostgres.registerDataSource(registry);
+    }
+
+    @Autowired
+    private RaceFinalizationService raceFinalizationService;
+
+    @Autowired
+    private RaceRepository raceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RaceResultSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void aChangeCommittingDuringTheSweepKeepsTheStaleSnapshotOut() throws Exception {
+        Long raceId = finishedRace();
+        CountDownLatch changed = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // A late submission: invalidates inside its transaction, then takes its time to commit
+            Future<?> submission = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                raceFinalizationService.invalidate(raceId);
+                changed.countDown();
+                await(commit);
+            }));
+            assertThat(changed.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // The sweep reads the results before the submission is visible, then waits for the race's row lock
+            Future<?> sweep = executor.submit(raceFinalizationService::finalizeFinishedRaces);
+            waitForLockWait();
+            commit.countDown();
+            submission.get(10, TimeUnit.SECONDS);
+            sweep.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(snapshotRepository.existsById(raceId)).as("snapshot built from pre-submission results").isFalse();
+
+        raceFinalizationService.finalizeFinishedRaces();
+        assertThat(snapshotRepository.existsById(raceId)).isTrue();
+    }
+
+    private Long finishedRace() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            User organiser = userRepository.save(new User(ORGANISER_ID, "Organiser", "Org", "Aniser", null, "F", null, null, null));
+            Race race = new Race();
+            race.setRaceName("Finished race");
+            race.setOrganiser(organiser);
+            race.setStartDate(Instant.now().minus(2, ChronoUnit.DAYS));
+            race.setEndDate(Instant.now().minus(1, ChronoUnit.DAYS));
+            race.setSegmentIds(new long[]{11L});
+            race.setPassword("secret");
+            return raceRepository.save(race).getId();
+        });
+    }
+
+    private void waitForLockWait() throws InterruptedException {
+        for (int attempt = 0; attempt < 200; attempt++) {
+            Integer waiting = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock' AND query LIKE '%FOR UPDATE%'", Integer.class);
+            if (waiting != null && waiting > 0) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("The sweep never waited for the race's row lock");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.matesRace.backend.service;
+
+import com.matesRace.backend.dto.RaceImportResultDTO;
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.model.User;
+import com.matesRace.backend.repository.RaceRepository;
+import com.matesRace.backend.repository.UserRepository;
+import com.matesRace.backend.support.RequiresPostgres;
+import com.matesRace.backend.support.TestPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Imports into a real database: the row limit (lowered to three), replacing results, rejected rows and the counters
+@SpringBootTest(properties = {
+        "spring.security.oauth2.client.registration.strava.client-id=test",
+        "spring.security.oauth2.client.registration.strava.client-secret=test",
+        "frontend.url=http://localhost",
+        "matesrace.races.import.max-rows=3"
+})
+@RequiresPostgres
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RaceImportServiceTests {
+
+    private static final long ORGANISER_ID = 7_000_000L;
+    private static final long FIRST_RIDER_ID = 7_000_001L;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestPostgres.registerDataSource(registry);
+    }
+
+    @Autowired
+    private RaceImportService raceImportService;
+
+    @Autowired
+    private RaceRepository raceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Race race;
+
+    @BeforeAll
+    void seedRace() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userRepository.save(new User(ORGANISER_ID, "Organiser", "Org", "Aniser", null, "F", null, null, null));
+            for (int i = 0; i < 4; i++) {
+                userRepository.save(new User(FIRST_RIDER_ID + i, "Rider " + i, "Rider", String.valueOf(i), null, "M", null, null, null));
+            }
+        });
+        race = newRace(11L);
+    }
+
+    @Test
+    void aFileOfExactlyTheLimitIsNotReportedAsTruncated() throws Exception {
+        RaceImportResultDTO result = dryRun(3, "\n\n"); // Trailing blank lines are not rows
+        assertThat(result.getRowsRead()).isEqualTo(3);
+        assertThat(result.getErrorCount()).isZero();
+    }
+
+    @Test
+    void aRowPastTheLimitIsReported() throws Exception {
+        RaceImportResultDTO result = dryRun(4, "");
+        assertThat(result.getRowsRead()).isEqualTo(3);
+        assertThat(result.getErrorCount()).isEqualTo(1);
+        assertThat(result.getErrors().get(0).getMessage()).startsWith("Only the first 3 rows");
+    }
+
+    @Test
+    void aRowWithTimesReplacesTheRidersResults() throws Exception {
+        Race race = newRace(11L, 22L);
+        importCsv(race, "strava_id,Segment 11,Segment 22\n" + FIRST_RIDER_ID + ",600,700\n");
+
+        RaceImportResultDTO result = importCsv(race, "strava_id,Segment 11\n" + FIRST_RIDER_ID + ",9:10\n");
+
+        assertThat(result.getParticipantsCreated()).isZero();
+        assertThat(result.getParticipantsUpdated()).isEqualTo(1);
+        assertThat(result.getSegmentResultsWritten()).isEqualTo(1);
+        assertThat(results(race, FIRST_RIDER_ID)).containsExactly("11=550"); // Segment 22 went with the old submission
+    }
+
+    @Test
+    void aRowWithoutTimesOnlyAddsTheRider() throws Exception {
+        Race race = newRace(11L, 22L);
+        importCsv(race, "strava_id,Segment 11,Segment 22\n" + FIRST_RIDER_ID + ",600,700\n");
+
+        RaceImportResultDTO result = importCsv(race, "strava_id,Segment 11,Segment 22\n"
+                + FIRST_RIDER_ID + ",,\n"
+                + (FIRST_RIDER_ID + 1) + ",,\n");
+
+        assertThat(result.getParticipantsCreated()).isEqualTo(1);
+        assertThat(result.getParticipantsUpdated()).isZero();
+        assertThat(result.getSegmentResultsWritten()).isZero();
+        assertThat(results(race, FIRST_RIDER_ID)).containsExactly("11=600", "22=700");
+        assertThat(submitted(race, FIRST_RIDER_ID)).isTrue();
+        assertThat(results(race, FIRST_RIDER_ID + 1)).isEmpty();
+        assertThat(submitted(race, FIRST_RIDER_ID + 1)).isFalse();
+    }
+
+    @Test
+    void unknownAndRepeatedAthletesAreReportedByLineAndNotWritten() throws Exception {
+        Race race = newRace(11L);
+
+        RaceImportResultDTO result = importCsv(race, "strava_id,Segment 11\n"
+                + FIRST_RIDER_ID + ",600\n"
+                + "6999999,600\n"
+                + FIRST_RIDER_ID + ",500\n");
+
+        assertThat(result.getRowsRead()).isEqualTo(3);
+        assertThat(result.getParticipantsCreated()).isEqualTo(1);
+        assertThat(result.getErrorCount()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting(error -> error.getLine() + ": " + error.getMessage()).containsExactly(
+                "3: Athlete 6999999 has no matesRace account.",
+                "4: Athlete " + FIRST_RIDER_ID + " is already on line 2.");
+        assertThat(jdbcTemplate.queryForList("SELECT user_strava_id FROM participants WHERE race_id = ?", Long.class, race.getId()))
+                .containsExactly(FIRST_RIDER_ID);
+        assertThat(results(race, FIRST_RIDER_ID)).containsExactly("11=600"); // The first line wins
+    }
+
+    @Test
+    void anImportRecountsTheRaceAndEvictsTheCachedRace() throws Exception {
+        Race race = newRace(11L);
+        importCsv(race, "strava_id,Segment 11\n" + FIRST_RIDER_ID + ",600\n");
+        raceRepository.findById(race.getId()).orElseThrow(); // Into the second-level cache
+        assertThat(entityManagerFactory.getCache().contains(Race.class, race.getId())).isTrue();
+
+        importCsv(race, "strava_id,Segment 11\n" + (FIRST_RIDER_ID + 1) + ",650\n" + (FIRST_RIDER_ID + 2) + ",\n");
+
+        assertThat(entityManagerFactory.getCache().contains(Race.class, race.getId())).isFalse();
+        Race reloaded = raceRepository.findById(race.getId()).orElseThrow();
+        assertThat(reloaded.getParticipantCount()).isEqualTo(3);
+        assertThat(reloaded.getSubmittedCount()).isEqualTo(2);
+    }
+
+    private Race newRace(long... segmentIds) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Race created = new Race();
+            created.setRaceName("Import race");
+            created.setOrganiser(userRepository.getReferenceById(ORGANISER_ID));
+            created.setStartDate(Instant.now().minus(1, ChronoUnit.DAYS));
+            created.setEndDate(Instant.now().plus(1, ChronoUnit.DAYS));
+            created.setSegmentIds(segmentIds);
+            created.setPassword("secret");
+            return raceRepository.save(created);
+        });
+    }
+
+    private RaceImportResultDTO dryRun(int rows, String trailer) throws Exception {
+        StringBuilder csv = new StringBuilder("strava_id,Segment 11\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(FIRST_RIDER_ID + i).append(",600\n");
+        }
+        csv.append(trailer);
+        return raceImportService.importResults(race, new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                RaceImportService.Format.CSV, true);
+    }
+
+    private RaceImportResultDTO importCsv(Race race, String csv) throws Exception {
+        return raceImportService.importResults(race, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                RaceImportService.Format.CSV, false);
+    }
+
+    // "segment=seconds" per stored result, by segment
+    private List<String> results(Race race, long stravaId) {
+        return jdbcTemplate.queryForList("""
+                SELECT psr.segment_id || '=' || psr.elapsed_time_seconds
+                FROM participant_segment_results psr
+                JOIN participants p ON p.id = psr.participant_id
+                WHERE p.race_id = ? AND p.user_strava_id = ?
+                ORDER BY psr.segment_id
+                """, String.class, race.getId(), stravaId);
+    }
+
+    private boolean submitted(Race race, long stravaId) {
+        return jdbcTemplate.queryForObject("SELECT submitted_ride FROM participants WHERE race_id = ? AND user_strava_id = ?",
+                Boolean.class, race.getId(), stravaId);
+    }
+}
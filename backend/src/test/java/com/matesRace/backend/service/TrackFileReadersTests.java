@@ -0,0 +1,113 @@
+package com.matesRace.backend.service;
+
+import com.matesRace.backend.model.Participant;
+import com.matesRace.backend.model.ParticipantSegmentResult;
+import com.matesRace.backend.model.Segment;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+// GPX and FIT decoding into TrackPoints, and timing a segment on the decoded track
+class TrackFileReadersTests {
+
+    private static final Instant START = Instant.parse("2026-05-01T08:00:00Z");
+
+    @Test
+    void gpxKeepsTimedTrackPointsOnly() {
+        String gpx = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <gpx version="1.1" creator="test" xmlns="http://www.topografix.com/GPX/1/1">
+                  <trk><trkseg>
+                    <trkpt lat="51.5000000" lon="-0.1000000"><ele>10</ele><time>2026-05-01T08:00:00Z</time></trkpt>
+                    <trkpt lat="51.5001000" lon="-0.1000000"><time>2026-05-01T10:00:01+02:00</time>
+                      <extensions><hr>120</hr></extensions></trkpt>
+                    <trkpt lat="51.5002000" lon="-0.1000000"></trkpt>
+                    <trkpt lat="51.5003000" lon="-0.1000000"><time>2026-05-01T08:00:05.250Z</time></trkpt>
+                  </trkseg></trk>
+                </gpx>
+                """;
+        TrackPoints track = new TrackPoints(100);
+        GpxTrackReader.read(new ByteArrayInputStream(gpx.getBytes(StandardCharsets.UTF_8)), track);
+
+        assertThat(track.size()).isEqualTo(3);
+        assertThat(track.startTime()).isEqualTo(START);
+        assertThat(track.epochSecond(1)).isEqualTo(START.getEpochSecond() + 1);
+        assertThat(track.epochSecond(2)).isEqualTo(START.getEpochSecond() + 5);
+        assertThat(track.lat(2)).isCloseTo(51.5003, within(1e-7));
+    }
+
+    @Test
+    void fitRecordsAreDecodedIncludingCompressedTimestamps() {
+        TrackPoints track = new TrackPoints(100);
+        FitTrackReader.read(new ByteArrayInputStream(fitFile(10)), track);
+
+        assertThat(track.size()).isEqualTo(10);
+        assertThat(track.startTime()).isEqualTo(START);
+        assertThat(track.endTime()).isEqualTo(START.plusSeconds(9));
+        assertThat(track.lat(0)).isCloseTo(51.5, within(1e-6));
+        assertThat(track.lng(9)).isCloseTo(-0.1 + 9 * 0.0001, within(1e-6));
+    }
+
+    @Test
+    void gzippedUploadsAreSniffedAndAStraightRideIsTimed() throws IOException {
+        TrackSubmissionService service = new TrackSubmissionService(null, null, null, null, null, null);
+        ReflectionTestUtils.setField(service, "maxPoints", 1000);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+            gzip.write(fitFile(300)); // Heading east at about 7 m/s along 51.5N
+        }
+        TrackPoints track = service.readTrack(new ByteArrayInputStream(gzipped.toByteArray()));
+
+        Segment segment = new Segment(11L, "Flat", 51.5, -0.1 + 50 * 0.0001, 51.5, -0.1 + 250 * 0.0001, 1380.0, null, START);
+        List<ParticipantSegmentResult> results = new TrackSegmentMatcher(List.of(segment)).match(track, new Participant());
+
+        assertThat(results).singleElement().satisfies(result -> {
+            assertThat(result.getSegmentId()).isEqualTo(11L);
+            assertThat(result.getElapsedTimeSeconds()).isEqualTo(200);
+        });
+    }
+
+    // A FIT file with two record definitions: local type 0 with a full timestamp for the first record,
+    // local type 1 without one for compressed-timestamp records, one per second moving 0.0001 degrees east
+    private static byte[] fitFile(int records) {
+        ByteBuffer data = ByteBuffer.allocate(64 + records * 16).order(ByteOrder.LITTLE_ENDIAN);
+        data.put((byte) 0x40).put((byte) 0).put((byte) 0).putShort((short) 20).put((byte) 3);
+        data.put((byte) 253).put((byte) 4).put((byte) 0x86);
+        data.put((byte) 0).put((byte) 4).put((byte) 0x85);
+        data.put((byte) 1).put((byte) 4).put((byte) 0x85);
+        data.put((byte) 0x41).put((byte) 0).put((byte) 0).putShort((short) 20).put((byte) 2);
+        data.put((byte) 0).put((byte) 4).put((byte) 0x85);
+        data.put((byte) 1).put((byte) 4).put((byte) 0x85);
+        long fitTime = START.getEpochSecond() - 631_065_600L;
+        for (int i = 0; i < records; i++) {
+            if (i == 0) {
+                data.put((byte) 0x00).putInt((int) fitTime);
+            } else {
+                data.put((byte) (0x80 | (1 << 5) | ((fitTime + i) & 0x1F)));
+            }
+            data.putInt(semicircles(51.5)).putInt(semicircles(-0.1 + i * 0.0001));
+        }
+        int dataSize = data.position();
+        ByteBuffer file = ByteBuffer.allocate(14 + dataSize + 2).order(ByteOrder.LITTLE_ENDIAN);
+        file.put((byte) 14).put((byte) 0x20).putShort((short) 2132).putInt(dataSize)
+                .put(".FIT".getBytes(StandardCharsets.US_ASCII)).putShort((short) 0);
+        file.put(data.array(), 0, dataSize).putShort((short) 0);
+        return file.array();
+    }
+
+    private static int semicircles(double degrees) {
+        return (int) Math.round(degrees * (2147483648.0 / 180.0));
+    }
+}
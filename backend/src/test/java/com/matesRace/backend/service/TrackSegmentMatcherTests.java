@@ -0,0 +1,106 @@
+package com.matesRace.backend.service;
+
+import com.matesRace.backend.model.Participant;
+import com.matesRace.backend.model.ParticipantSegmentResult;
+import com.matesRace.backend.model.Segment;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+// Gate, checkpoint and lap handling of the single-pass matcher on hand-made tracks
+class TrackSegmentMatcherTests {
+
+    private static final long T0 = Instant.parse("2026-05-01T08:00:00Z").getEpochSecond();
+    private static final double LAT = 51.5;
+    private static final double LNG = -0.1;
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * 6_371_000;
+
+    @Test
+    void polylineRoundTripsGooglesExample() {
+        double[] decoded = PolylineCodec.decode("_p~iF~ps|U_ulLnnqC_mqNvxq`@");
+        assertThat(decoded).containsExactly(new double[]{38.5, -120.2, 40.7, -120.95, 43.252, -126.453}, within(1e-9));
+        assertThat(PolylineCodec.encode(decoded)).isEqualTo("_p~iF~ps|U_ulLnnqC_mqNvxq`@");
+    }
+
+    @Test
+    void anotherRoadBetweenTheGatesDoesNotCountWhenThePolylineIsKnown() {
+        // The segment bends 400 m north between gates 1 km apart; the other road bends as far south
+        double[] route = {LAT, LNG, north(400), east(500), LAT, east(1000)};
+        Segment segment = segment(1L, route);
+        TrackSegmentMatcher matcher = new TrackSegmentMatcher(List.of(segment));
+
+        assertThat(matcher.match(ride(1, 5, LAT, LNG, north(-400), east(500), LAT, east(1000)), new Participant())).isEmpty();
+        List<ParticipantSegmentResult> results = matcher.match(ride(1, 5, route), new Participant());
+        assertThat(results).singleElement().satisfies(result ->
+                assertThat(result.getElapsedTimeSeconds()).isCloseTo((int) Math.round(2 * Math.hypot(400, 500) / 5), within(2)));
+    }
+
+    @Test
+    void bestLapOfALoopSegmentIsKept() {
+        // A 4 x 250 m square whose start and end gates coincide, ridden twice: slowly, then quickly
+        double[] square = {LAT, LNG, LAT, east(250), north(250), east(250), north(250), LNG, LAT, LNG};
+        Segment segment = segment(2L, square);
+        TrackPoints track = new TrackPoints(10_000);
+        long end = append(track, T0, 1, 4, square);
+        append(track, end + 1, 1, 8, square);
+
+        List<ParticipantSegmentResult> results = new TrackSegmentMatcher(List.of(segment)).match(track, new Participant());
+        assertThat(results).singleElement().satisfies(result ->
+                assertThat(result.getElapsedTimeSeconds()).isCloseTo(125, within(2)));
+    }
+
+    @Test
+    void sparseRecordingsThatStepOverTheGatesStillMatch() {
+        double[] route = {LAT, LNG, LAT, east(2000)};
+        List<ParticipantSegmentResult> results = new TrackSegmentMatcher(List.of(segment(3L, route)))
+                .match(ride(10, 6, LAT, east(-100), LAT, east(2100)), new Participant());
+        assertThat(results).singleElement().satisfies(result ->
+                assertThat(result.getElapsedTimeSeconds()).isCloseTo(333, within(2)));
+    }
+
+    private static Segment segment(long id, double[] route) {
+        double length = 0;
+        for (int i = 2; i < route.length; i += 2) {
+            length += TrackSegmentMatcher.distance(route[i - 2], route[i - 1], route[i], route[i + 1]);
+        }
+        return new Segment(id, "Segment " + id, route[0], route[1], route[route.length - 2], route[route.length - 1],
+                length, PolylineCodec.encode(route), Instant.EPOCH);
+    }
+
+    private static TrackPoints ride(int secondsPerPoint, double metersPerSecond, double... waypoints) {
+        TrackPoints track = new TrackPoints(100_000);
+        append(track, T0, secondsPerPoint, metersPerSecond, waypoints);
+        return track;
+    }
+
+    // Rides through the waypoints at a constant speed, recording every secondsPerPoint; returns the last time
+    private static long append(TrackPoints track, long start, int secondsPerPoint, double metersPerSecond, double... waypoints) {
+        long time = start;
+        double carried = 0;
+        for (int i = 2; i < waypoints.length; i += 2) {
+            double length = TrackSegmentMatcher.distance(waypoints[i - 2], waypoints[i - 1], waypoints[i], waypoints[i + 1]);
+            double at = carried;
+            for (; at < length; at += metersPerSecond * secondsPerPoint) {
+                double fraction = at / length;
+                track.add(waypoints[i - 2] + fraction * (waypoints[i] - waypoints[i - 2]),
+                        waypoints[i - 1] + fraction * (waypoints[i + 1] - waypoints[i - 1]), time);
+                time += secondsPerPoint;
+            }
+            carried = at - length;
+        }
+        track.add(waypoints[waypoints.length - 2], waypoints[waypoints.length - 1], time);
+        return time;
+    }
+
+    private static double north(double meters) {
+        return LAT + meters / METERS_PER_DEGREE;
+    }
+
+    private static double east(double meters) {
+        return LNG + meters / (METERS_PER_DEGREE * Math.cos(Math.toRadians(LAT)));
+    }
+}
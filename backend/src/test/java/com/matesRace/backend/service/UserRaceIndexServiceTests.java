@@ -0,0 +1,109 @@
+package com.matesRace.backend.service;
+
+import com.matesRace.backend.model.Race;
+import com.matesRace.backend.model.User;
+import com.matesRace.backend.repository.RaceRepository;
+import com.matesRace.backend.repository.UserRepository;
+import com.matesRace.backend.support.RequiresPostgres;
+import com.matesRace.backend.support.TestPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Pending dashboard refreshes are rows, so they outlive the node that recorded them
+@SpringBootTest(properties = {
+        "spring.security.oauth2.client.registration.strava.client-id=test",
+        "spring.security.oauth2.client.registration.strava.client-secret=test",
+        "frontend.url=http://localhost",
+        "matesrace.dashboard-index.interval=PT1H" // Sweeps only when the test says so
+})
+@RequiresPostgres
+class UserRaceIndexServiceTests {
+
+    private static final long ORGANISER_ID = 6_000_000L;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestPostgres.registerDataSource(registry);
+    }
+
+    @Autowired
+    private UserRaceIndexService userRaceIndexService;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired
+    private RaceRepository raceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void aCommittedChangeIsRefreshedFromItsMarker() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Long raceId = transaction.execute(status -> {
+            Long id = raceRepository.save(race()).getId();
+            cacheInvalidationBus.raceChanged(id);
+            return id;
+        });
+        assertThat(pending(raceId)).isTrue();
+        assertThat(indexRows(raceId)).isZero();
+
+        // A fresh sweep, as after a restart, needs nothing but the table
+        userRaceIndexService.refreshPending();
+
+        assertThat(pending(raceId)).isFalse();
+        assertThat(indexRows(raceId)).isEqualTo(1); // The organiser's row
+    }
+
+    @Test
+    void aRolledBackChangeLeavesNoMarker() {
+        Long raceId = new TransactionTemplate(transactionManager).execute(status -> {
+            Long id = raceRepository.save(race()).getId();
+            cacheInvalidationBus.raceChanged(id);
+            status.setRollbackOnly();
+            return id;
+        });
+        assertThat(pending(raceId)).isFalse();
+    }
+
+    private Race race() {
+        User organiser = userRepository.findById(ORGANISER_ID).orElseGet(() ->
+                userRepository.save(new User(ORGANISER_ID, "Organiser", "Org", "Aniser", null, "F", null, null, null)));
+        Race race = new Race();
+        race.setRaceName("Dashboard race");
+        race.setOrganiser(organiser);
+        race.setStartDate(Instant.now().minus(1, ChronoUnit.DAYS));
+        race.setEndDate(Instant.now().plus(1, ChronoUnit.DAYS));
+        race.setSegmentIds(new long[]{11L});
+        race.setPassword("secret");
+        return race;
+    }
+
+    private boolean pending(Long raceId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM user_race_index_pending WHERE race_id = ?)", Boolean.class, raceId));
+    }
+
+    private int indexRows(Long raceId) {
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_race_index WHERE race_id = ?", Integer.class, raceId);
+        return rows != null ? rows : 0;
+    }
+}
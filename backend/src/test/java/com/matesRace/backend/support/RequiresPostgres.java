@@ -0,0 +1,43 @@
+package com.matesRace.backend.support;
+
+import org.junit.jupiter.api.extension.ConditionEvaluationResult;
+import org.junit.jupiter.api.extension.ExecutionCondition;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.ExtensionConfigurationException;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the test class only when {@link TestPostgres} can provide a database. On a developer machine
+ * without Docker the class is skipped; on CI (the CI environment variable, set by GitHub Actions, GitLab
+ * and most other runners, or -Dmatesrace.tests.require-database=true) it fails instead, so the SQL
+ * budgets and other database tests cannot silently stop running.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(RequiresPostgres.Condition.class)
+public @interface RequiresPostgres {
+
+    class Condition implements ExecutionCondition {
+
+        @Override
+        public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
+            if (TestPostgres.available()) {
+                return ConditionEvaluationResult.enabled("Postgres is available");
+            }
+            String reason = "Neither Docker nor TEST_DATABASE_URL is available for database tests";
+            if (required()) {
+                throw new ExtensionConfigurationException(reason + ", and they may not be skipped on CI.");
+            }
+            return ConditionEvaluationResult.disabled(reason);
+        }
+
+        private static boolean required() {
+            return Boolean.parseBoolean(System.getenv("CI")) || Boolean.getBoolean("matesrace.tests.require-database");
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.matesRace.backend.support;
+
+import com.matesRace.backend.config.SqlStatementCounter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Asserts how many SQL statements a request runs, Hibernate and JdbcTemplate alike. MockMvc executes
+ * the request on the calling thread, so the thread-local {@link SqlStatementCounter} sees every statement;
+ * async and streaming work only counts if the test runs it on that thread too.
+ */
+public final class SqlStatementBudget {
+
+    private SqlStatementBudget() {
+    }
+
+    public static ResultActions performWithin(MockMvc mockMvc, long maxStatements, RequestBuilder request) throws Exception {
+        SqlStatementCounter.reset();
+        ResultActions result = mockMvc.perform(request);
+        long executed = SqlStatementCounter.current();
+        assertTrue(executed <= maxStatements, () -> String.format(
+                "%s %s ran %d SQL statements, budget is %d (N+1 regression?)",
+                result.andReturn().getRequest().getMethod(), result.andReturn().getRequest().getRequestURI(),
+                executed, maxStatements));
+        return result;
+    }
+}
@@ -0,0 +1,81 @@
+package com.matesRace.backend.support;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Postgres databases for the integration tests, created once per JVM and shared by every test class.
+ * <p>
+ * By default each database is its own postgres:13 container. Setting TEST_DATABASE_URL (with
+ * TEST_DATABASE_USERNAME and TEST_DATABASE_PASSWORD) runs the tests against an existing server instead:
+ * each database is then created afresh on that server as {@code matesrace_test_<name>}, so the URL's own
+ * database is never written to. Test classes guard themselves with {@link RequiresPostgres}.
+ */
+public final class TestPostgres {
+
+    public static final String PRIMARY = "primary";
+
+    private static final String IMAGE = "postgres:13";
+    private static final String EXTERNAL_URL = System.getenv("TEST_DATABASE_URL");
+    private static final Map<String, Database> DATABASES = new ConcurrentHashMap<>();
+
+    public record Database(String url, String username, String password) {
+    }
+
+    private TestPostgres() {
+    }
+
+    public static Database database(String name) {
+        return DATABASES.computeIfAbsent(name, TestPostgres::create);
+    }
+
+    // The application DataSource (spring.datasource.*) on the shared primary database
+    public static void registerDataSource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> database(PRIMARY).url());
+        registry.add("spring.datasource.username", () -> database(PRIMARY).username());
+        registry.add("spring.datasource.password", () -> database(PRIMARY).password());
+    }
+
+    static boolean external() {
+        return EXTERNAL_URL != null && !EXTERNAL_URL.isBlank();
+    }
+
+    static boolean available() {
+        return external() || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    private static Database create(String name) {
+        if (!external()) {
+            PostgreSQLContainer<?> container = new PostgreSQLContainer<>(IMAGE).withDatabaseName("matesrace_" + name);
+            container.start(); // Stopped by the Testcontainers reaper when the JVM exits
+            return new Database(container.getJdbcUrl(), container.getUsername(), container.getPassword());
+        }
+        String username = System.getenv("TEST_DATABASE_USERNAME");
+        String password = System.getenv("TEST_DATABASE_PASSWORD");
+        String database = "matesrace_test_" + name;
+        try (Connection connection = DriverManager.getConnection(EXTERNAL_URL, username, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + database + " WITH (FORCE)");
+            statement.execute("CREATE DATABASE " + database);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create test database " + database + " on " + EXTERNAL_URL, e);
+        }
+        return new Database(withDatabase(EXTERNAL_URL, database), username, password);
+    }
+
+    // jdbc:postgresql://host:port/db?params with db replaced
+    private static String withDatabase(String url, String database) {
+        int query = url.indexOf('?');
+        String base = query >= 0 ? url.substring(0, query) : url;
+        String params = query >= 0 ? url.substring(query) : "";
+        return base.substring(0, base.lastIndexOf('/') + 1) + database + params;
+    }
+}
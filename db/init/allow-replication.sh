@@ -0,0 +1,5 @@
+#!/bin/sh
+# Lets the db-replica service stream WAL from the primary. Runs from docker-entrypoint-initdb.d,
+# so only when the data volume is first created; on an existing volume append the line by hand.
+set -e
+echo "host replication ${POSTGRES_USER} all md5" >> "$PGDATA/pg_hba.conf"
@@ -6,7 +6,7 @@ import { Button } from "@/components/ui/button";
 import { Input } from "@/components/ui/input";
 import { PlusCircle, Users, Trophy, Settings, Loader2, AlertTriangle, Search } from "lucide-react";
 import RaceCard from "./RaceCard";
-import { Race } from "@/types/raceTypes";
+import { RaceSummary } from "@/types/raceTypes";
 import { parseISO } from 'date-fns';
 import JoinRaceDialog from "./JoinRaceDialog";
 import { useAuth } from "@/AuthContext";
@@ -18,7 +18,7 @@ const Home = () => {
   const { toast } = useToast();
   const [activeTab, setActiveTab] = useState<"all" | "ongoing" | "upcoming">("all");
   const [showFinishedOnly, setShowFinishedOnly] = useState(false);
-  const [races, setRaces] = useState<Race[]>([]);
+  const [races, setRaces] = useState<RaceSummary[]>([]);
   const [isLoading, setIsLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
   const [searchTerm, setSearchTerm] = useState("");
@@ -41,7 +41,7 @@ const Home = () => {
           return;
         }
       } else {
-        const data: Race[] = await response.json();
+        const data: RaceSummary[] = await response.json();
         setRaces(data);
       }
     } catch (err: any) {
@@ -238,7 +238,7 @@ const Home = () => {
                 status={race.status as "upcoming" | "ongoing" | "finished"}
                 startDate={parseISO(race.startDate)}
                 endDate={parseISO(race.endDate)}
-                participantCount={race.participantCount !== undefined ? race.participantCount : (race.participants?.length || 0)}
+                participantCount={race.participantCount}
                 organizer={race.organiser}
                 isPrivate={race.isPrivate}
                 onClick={() => handleViewRaceDetails(race.id)}
@@ -51,18 +51,21 @@ export interface Race {
   useSexCategories: boolean; 
   participants?: RaceParticipant[];
   participantCount: number;
+  submittedCount?: number;
   password?: string;
 }
 
+// List views (GET /api/races, /api/races/participating): no segment ids, participants or password
 export interface RaceSummary {
   id: number;
   raceName: string;
   startDate: string;
   endDate: string;
-  organiser: RaceOrganiser;
+  organiser: Pick<RaceOrganiser, "stravaId" | "displayName" | "userStravaFirstName" | "userStravaLastName">;
   isPrivate: boolean; 
   hideLeaderboardUntilFinish: boolean;
   useSexCategories: boolean; 
   participantCount: number;
+  submittedCount?: number;
   status?: "upcoming" | "ongoing" | "finished";
 }
\ No newline at end of file